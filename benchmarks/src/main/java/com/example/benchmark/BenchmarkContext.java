@@ -0,0 +1,68 @@
+package com.example.benchmark;
+
+import com.example.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application against a private in-memory H2 database for benchmarks.
+ * Its name is available to extra properties as ${benchmark.database}.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application without a web server.
+     *
+     * Properties are passed as command line arguments so that they take
+     * precedence over application.properties.
+     *
+     * @param extraProperties additional "key=value" properties, override the defaults
+     * @return the running context, to be closed by the caller
+     */
+    public static ConfigurableApplicationContext start(String... extraProperties) {
+
+        return start(WebApplicationType.NONE, extraProperties);
+    }
+
+    /**
+     * Starts the application with an embedded web server on a random free port.
+     * The port is available as the "local.server.port" property of the context environment,
+     * the management port as "local.management.port".
+     *
+     * @param extraProperties additional "key=value" properties, override the defaults
+     * @return the running context, to be closed by the caller
+     */
+    public static ConfigurableApplicationContext startWebServer(String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of("server.port=0", "management.server.port=0"));
+        properties.addAll(List.of(extraProperties));
+
+        return start(WebApplicationType.SERVLET, properties.toArray(String[]::new));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "benchmark.database=" + UUID.randomUUID(),
+                "spring.datasource.url=jdbc:h2:mem:${benchmark.database};DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "logging.level.com.example=WARN"));
+        properties.addAll(List.of(extraProperties));
+
+        return new SpringApplicationBuilder(Application.class)
+                .web(type)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop HTTP load generator: keeps a fixed number of requests in flight
+ * for a fixed duration and records the latency of every response.
+ */
+public final class LoadGenerator {
+
+    private static final int MAX_SAMPLES = 10_000_000;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * Runs the load and blocks until all in-flight requests have finished.
+     *
+     * @param requests produces the next request to send
+     * @param concurrency number of requests kept in flight
+     * @param duration how long new requests are started
+     * @return throughput and latency summary
+     */
+    public Result run(Supplier<HttpRequest> requests, int concurrency, Duration duration) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        while (System.nanoTime() < end) {
+            if (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                continue;
+            }
+            long sent = System.nanoTime();
+            client.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        }
+                        int slot = samples.getAndIncrement();
+                        if (slot < MAX_SAMPLES) {
+                            latencies[slot] = System.nanoTime() - sent;
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(concurrency);
+        long elapsed = System.nanoTime() - start;
+
+        int count = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        return new Result(count, errors.get(), count / (elapsed / 1e9),
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99),
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    public static HttpRequest get(URI uri) {
+
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+
+            return 0;
+        }
+
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    /**
+     * Summary of one load run.
+     *
+     * @param requests completed requests
+     * @param errors transport failures and 5xx responses
+     * @param throughput completed requests per second
+     * @param p50Millis median latency
+     * @param p99Millis 99th percentile latency
+     * @param maxMillis slowest response
+     */
+    public record Result(long requests, long errors, double throughput,
+                         double p50Millis, double p99Millis, double maxMillis) {
+
+        @Override
+        public String toString() {
+
+            return String.format("%,d requests, %,d errors, %,.0f req/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    requests, errors, throughput, p50Millis, p99Millis, maxMillis);
+        }
+    }
+}
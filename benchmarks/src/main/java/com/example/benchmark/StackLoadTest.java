@@ -0,0 +1,91 @@
+package com.example.benchmark;
+
+import com.example.config.ReactiveUserServer;
+import com.example.entity.UserEntity;
+import com.example.service.UserService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Compares the servlet (MVC + JPA) and the reactive (WebFlux + R2DBC) user API at
+ * high concurrency: throughput and latency of single-user reads and of keyset pages.
+ *
+ * Both stacks run in the same application against the same H2 database, with the same
+ * number of database connections. The user cache and admission control are disabled,
+ * so every request reaches the database and no request is shed.
+ *
+ * Settings (system properties): load.concurrency (default 1000), load.seconds (default 20).
+ */
+public final class StackLoadTest {
+
+    private static final int USERS = 10_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int CONNECTIONS = 10;
+
+    private StackLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 1000);
+        Duration duration = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+
+        try (ConfigurableApplicationContext context = BenchmarkContext.startWebServer(
+                "app.reactive.enabled=true",
+                "app.reactive.port=0",
+                "app.reactive.r2dbc.url=r2dbc:h2:mem:///${benchmark.database}?options=DB_CLOSE_DELAY=-1",
+                "app.reactive.r2dbc.username=sa",
+                "app.reactive.r2dbc.password=",
+                "app.reactive.r2dbc.pool.max-size=" + CONNECTIONS,
+                "spring.datasource.hikari.maximum-pool-size=" + CONNECTIONS,
+                "app.users.cache.max-size=0",
+                "app.admission.enabled=false")) {
+            List<Long> ids = seed(context.getBean(UserService.class));
+            String mvc = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            String reactive = "http://localhost:" + context.getBean(ReactiveUserServer.class).getPort();
+            LoadGenerator generator = new LoadGenerator();
+
+            System.out.printf("concurrency %d, %s per run, %d users, %d connections per stack%n",
+                    concurrency, duration, USERS, CONNECTIONS);
+            Function<String, URI> byId = base -> URI.create(base + "/api/users/" + randomId(ids));
+            Function<String, URI> page = base -> URI.create(base + "/api/users?limit=" + PAGE_SIZE + "&after=" + randomId(ids));
+            System.out.println("GET /api/users/{id}");
+            System.out.println("  mvc:      " + run(generator, byId, mvc, concurrency, duration));
+            System.out.println("  reactive: " + run(generator, byId, reactive, concurrency, duration));
+            System.out.println("GET /api/users?limit=" + PAGE_SIZE + "&after={id}");
+            System.out.println("  mvc:      " + run(generator, page, mvc, concurrency, duration));
+            System.out.println("  reactive: " + run(generator, page, reactive, concurrency, duration));
+        }
+    }
+
+    private static LoadGenerator.Result run(LoadGenerator generator, Function<String, URI> uris, String base,
+                                            int concurrency, Duration duration) throws InterruptedException {
+        // warm up the JIT and the connection pool before measuring
+        generator.run(() -> LoadGenerator.get(uris.apply(base)), Math.min(concurrency, 100), Duration.ofSeconds(5));
+
+        return generator.run(() -> LoadGenerator.get(uris.apply(base)), concurrency, duration);
+    }
+
+    private static List<Long> seed(UserService userService) {
+        List<Long> ids = new ArrayList<>(USERS);
+        for (int from = 0; from < USERS; from += 1000) {
+            List<UserEntity> users = new ArrayList<>(1000);
+            for (int i = from; i < from + 1000; i++) {
+                users.add(new UserEntity("User " + i, "load-" + i + "@example.com", 20 + i % 50));
+            }
+            userService.createUsers(users).forEach(result -> ids.add(result.user().getId()));
+        }
+
+        return ids;
+    }
+
+    private static long randomId(List<Long> ids) {
+
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
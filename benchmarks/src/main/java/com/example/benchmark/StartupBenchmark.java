@@ -0,0 +1,212 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures time-to-first-request of {@code com.example.Application}: the wall-clock
+ * time from launching a fresh JVM until GET /api/users?limit=1 is answered with 200.
+ *
+ * Compares three modes, each started startup.runs times (default 5) against its own
+ * empty in-memory H2 database:
+ * - baseline: default configuration, schema managed by ddl-auto=update
+ * - faststart: the faststart profile (Flyway + validate, lazy initialization)
+ * - faststart+cds: the same with a class-data sharing archive, recorded by one
+ *   training run with app.startup.exit-on-ready=true before the measured runs
+ *
+ * The application is started from the benchmark classpath with its directories
+ * packed into jars, since CDS only archives classes loaded from jar files.
+ * Logs of every run are kept in target/startup.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Path workDir;
+    private final String classpath;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private StartupBenchmark(Path workDir, String classpath) {
+        this.workDir = workDir;
+        this.classpath = classpath;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("startup.runs", 5);
+        Path workDir = Path.of("target", "startup");
+        Files.createDirectories(workDir);
+        StartupBenchmark benchmark = new StartupBenchmark(workDir, packClasspath(workDir));
+        Path archive = workDir.resolve("app.jsa");
+
+        System.out.printf("time to first request, %d runs per mode, Java %s%n", runs, Runtime.version());
+        System.out.println("baseline:      " + benchmark.measure("baseline", runs, List.of(),
+                List.of("--spring.jpa.hibernate.ddl-auto=update")));
+        System.out.println("faststart:     " + benchmark.measure("faststart", runs, List.of(),
+                List.of("--spring.profiles.active=faststart")));
+
+        Files.deleteIfExists(archive);
+        benchmark.train(archive);
+        System.out.println("faststart+cds: " + benchmark.measure("faststart-cds", runs,
+                List.of("-XX:SharedArchiveFile=" + archive),
+                List.of("--spring.profiles.active=faststart")));
+    }
+
+    private Result measure(String mode, int runs, List<String> jvmOptions, List<String> arguments) throws Exception {
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            millis[run] = timeToFirstRequest(mode + "-" + run, jvmOptions, arguments);
+        }
+        Arrays.sort(millis);
+
+        return new Result(millis[0], millis[runs / 2], millis[runs - 1]);
+    }
+
+    /**
+     * Starts the application once with -XX:ArchiveClassesAtExit and lets it exit when ready.
+     */
+    private void train(Path archive) throws Exception {
+        List<String> arguments = List.of("--spring.profiles.active=faststart", "--app.startup.exit-on-ready=true");
+        Process process = launch("faststart-cds-training", freePort(),
+                List.of("-XX:ArchiveClassesAtExit=" + archive), arguments);
+        if (!process.waitFor(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS) || process.exitValue() != 0
+                || !Files.exists(archive)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("CDS training run failed, see " + workDir.resolve("faststart-cds-training.log"));
+        }
+    }
+
+    private long timeToFirstRequest(String name, List<String> jvmOptions, List<String> arguments) throws Exception {
+        int port = freePort();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users?limit=1"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        Process process = launch(name, port, jvmOptions, arguments);
+        try {
+            while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited, see " + workDir.resolve(name + ".log"));
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException | HttpTimeoutException e) {
+                    // not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("Application did not answer within " + STARTUP_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private Process launch(String name, int port, List<String> jvmOptions, List<String> arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xshare:auto");
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", classpath, "com.example.Application"));
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example=WARN"));
+        command.addAll(arguments);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    /**
+     * Returns this JVM's classpath with every directory packed into a jar of its own.
+     */
+    private static String packClasspath(Path workDir) throws IOException {
+        List<String> entries = new ArrayList<>();
+        String[] classpath = System.getProperty("java.class.path").split(java.io.File.pathSeparator);
+        for (int i = 0; i < classpath.length; i++) {
+            Path entry = Path.of(classpath[i]);
+            if (Files.isDirectory(entry)) {
+                Path jar = workDir.resolve("classpath-" + i + ".jar");
+                packDirectory(entry, jar);
+                entries.add(jar.toAbsolutePath().toString());
+            } else {
+                entries.add(entry.toAbsolutePath().toString());
+            }
+        }
+
+        return String.join(java.io.File.pathSeparator, entries);
+    }
+
+    /**
+     * Directory entries are written as well: without them classpath scanning finds
+     * no packages in the jar and the application starts without its controllers.
+     */
+    private static void packDirectory(Path directory, Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(file -> !file.equals(directory)).sorted()::iterator) {
+                String name = directory.relativize(file).toString().replace('\\', '/');
+                if (Files.isDirectory(file)) {
+                    out.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    out.putNextEntry(new JarEntry(name));
+                    Files.copy(file, (OutputStream) out);
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Time to first request over all runs of one mode, in milliseconds.
+     */
+    private record Result(long minMillis, long medianMillis, long maxMillis) {
+
+        @Override
+        public String toString() {
+
+            return String.format("median %,d ms, min %,d ms, max %,d ms", medianMillis, minMillis, maxMillis);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.benchmark;
+
+import com.example.config.VirtualThreads;
+import com.example.entity.UserEntity;
+import com.example.service.UserService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares throughput and p99 latency of GET /api/users/{id} with Tomcat's
+ * platform-thread pool and with the virtual-thread mode at high concurrency.
+ *
+ * The user cache is disabled so every request blocks on JDBC, and admission control
+ * is disabled so the comparison measures the thread modes rather than 503 shedding.
+ * The virtual mode is skipped when not running on Java 21+.
+ *
+ * Settings (system properties): load.concurrency (default 1000), load.seconds (default 20).
+ */
+public final class ThreadModeLoadTest {
+
+    private static final int USERS = 1_000;
+
+    private ThreadModeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 1000);
+        Duration duration = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+
+        System.out.printf("GET /api/users/{id}, concurrency %d, %s per mode%n", concurrency, duration);
+        System.out.println("platform threads: " + run(false, concurrency, duration));
+        if (VirtualThreads.isSupported()) {
+            System.out.println("virtual threads:  " + run(true, concurrency, duration));
+        } else {
+            System.out.println("virtual threads:  skipped, requires Java 21+ (running " + Runtime.version() + ")");
+        }
+    }
+
+    private static LoadGenerator.Result run(boolean virtual, int concurrency, Duration duration) throws Exception {
+        try (ConfigurableApplicationContext context = BenchmarkContext.startWebServer(
+                "app.threads.virtual.enabled=" + virtual,
+                "app.threads.virtual.acquire-timeout=30s",
+                "app.users.cache.max-size=0",
+                "app.admission.enabled=false")) {
+            List<Long> ids = seed(context.getBean(UserService.class));
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/users/";
+            LoadGenerator generator = new LoadGenerator();
+
+            // warm up the JIT and the connection pool before measuring
+            generator.run(() -> LoadGenerator.get(randomUser(base, ids)), Math.min(concurrency, 100), Duration.ofSeconds(5));
+
+            return generator.run(() -> LoadGenerator.get(randomUser(base, ids)), concurrency, duration);
+        }
+    }
+
+    private static List<Long> seed(UserService userService) {
+        List<UserEntity> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new UserEntity("User " + i, "load-" + i + "@example.com", 20 + i % 50));
+        }
+
+        return userService.createUsers(users).stream().map(result -> result.user().getId()).toList();
+    }
+
+    private static URI randomUser(String base, List<Long> ids) {
+
+        return URI.create(base + ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.benchmark;
+
+import com.example.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JSON serialization of UserDTO lists with the
+ * ObjectMapper configuration Spring Boot uses for responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<UserDTO> users;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(new UserDTO((long) i, "User " + i, "user" + i + "@example.com", 20 + i % 50));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+
+        return objectMapper.writeValueAsBytes(users);
+    }
+}
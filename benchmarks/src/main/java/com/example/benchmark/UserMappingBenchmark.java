@@ -0,0 +1,32 @@
+package com.example.benchmark;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the entity to DTO mapping done for write responses by {@link UserDTO#from(UserEntity)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private UserEntity user;
+
+    @Setup
+    public void setUp() {
+        user = new UserEntity(42L, "John Doe", "john@example.com", 30);
+    }
+
+    @Benchmark
+    public UserDTO toDTO() {
+
+        return UserDTO.from(user);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.benchmark;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old entity read path (load managed entities, copy into DTOs)
+ * with the DTO projection read path, for a single user and for a keyset page.
+ *
+ * Both paths run the same SQL against H2 with the user cache out of the way,
+ * so the difference is persistence context work: entity instantiation,
+ * snapshots for dirty checking and the flush check at commit.
+ * Run with "-prof gc" (the module default) to see bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadPathBenchmark {
+
+    private static final int SEEDED_USERS = 10_000;
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("app.users.cache.max-size=0");
+        userRepository = context.getBean(UserRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<UserEntity> seed = new ArrayList<>(SEEDED_USERS);
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            seed.add(new UserEntity("User " + i, "seed-" + i + "@example.com", 20 + i % 50));
+        }
+        ids = userRepository.saveAll(seed).stream().map(UserEntity::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<UserDTO> singleEntity() {
+
+        return userRepository.findById(randomId()).map(UserDTO::from);
+    }
+
+    @Benchmark
+    public Optional<UserDTO> singleDto() {
+
+        return userRepository.findDtoById(randomId());
+    }
+
+    @Benchmark
+    public List<UserDTO> pageEntity() {
+        Long afterId = randomAfterId();
+
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("select u from UserEntity u where u.id > :afterId order by u.id", UserEntity.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList()
+                .stream()
+                .map(UserDTO::from)
+                .toList());
+    }
+
+    @Benchmark
+    public List<UserDTO> pageDto() {
+
+        return userRepository.findDtoPageAfter(randomAfterId(), PAGE_SIZE);
+    }
+
+    private Long randomId() {
+
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private Long randomAfterId() {
+
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size() - PAGE_SIZE));
+    }
+}
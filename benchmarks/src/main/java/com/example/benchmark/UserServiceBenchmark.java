@@ -0,0 +1,99 @@
+package com.example.benchmark;
+
+import com.example.entity.UserEntity;
+import com.example.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks the UserServiceImpl CRUD paths against H2,
+ * with the user cache disabled (cacheSize=0) and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int SEEDED_USERS = 10_000;
+
+    @Param({"0", "10000"})
+    private int cacheSize;
+
+    private final AtomicLong emailSequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("app.users.cache.max-size=" + cacheSize);
+        userService = context.getBean(UserService.class);
+
+        List<UserEntity> seed = new ArrayList<>(SEEDED_USERS);
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            seed.add(new UserEntity("User " + i, "seed-" + i + "@example.com", 20 + i % 50));
+        }
+        ids = userService.createUsers(seed).stream()
+                .map(result -> result.user().getId())
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserEntity createUser() {
+
+        return userService.createUser(new UserEntity("New User", nextEmail(), 30));
+    }
+
+    @Benchmark
+    public Object getUserById() {
+
+        return userService.getUserById(randomId());
+    }
+
+    @Benchmark
+    public Object getUserByEmail() {
+
+        return userService.getUserByEmail("seed-" + ThreadLocalRandom.current().nextInt(SEEDED_USERS) + "@example.com");
+    }
+
+    @Benchmark
+    public UserEntity updateUser() {
+        int i = ThreadLocalRandom.current().nextInt(SEEDED_USERS);
+
+        return userService.updateUser(new UserEntity(ids.get(i), "Updated " + i, "seed-" + i + "@example.com", 30));
+    }
+
+    /**
+     * Delete needs a row to remove, so each invocation creates one first.
+     * Subtract {@link #createUser()} to get the delete cost.
+     */
+    @Benchmark
+    public void createThenDeleteUser() {
+        UserEntity created = userService.createUser(new UserEntity("Temp User", nextEmail(), 30));
+        userService.deleteUser(created.getId());
+    }
+
+    private Long randomId() {
+
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private String nextEmail() {
+
+        return "bench-" + emailSequence.incrementAndGet() + "@example.com";
+    }
+}
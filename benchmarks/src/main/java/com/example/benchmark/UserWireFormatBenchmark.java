@@ -0,0 +1,73 @@
+package com.example.benchmark;
+
+import com.example.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares JSON with the binary wire formats (CBOR, Smile) for UserDTO lists:
+ * encode and decode cost per list. The encoded payload size of every
+ * format/size combination is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserWireFormatBenchmark {
+
+    private static final TypeReference<List<UserDTO>> USER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<UserDTO> users;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UserDTO user = new UserDTO((long) i, "User " + i, "user" + i + "@example.com", 20 + i % 50);
+            user.setVersion((long) i % 3);
+            users.add(user);
+        }
+        encoded = objectMapper.writeValueAsBytes(users);
+        System.out.printf("%n%s, %d users: %,d bytes (%.1f bytes/user)%n",
+                format, size, encoded.length, (double) encoded.length / size);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public List<UserDTO> decode() throws IOException {
+
+        return objectMapper.readValue(encoded, USER_LIST);
+    }
+}
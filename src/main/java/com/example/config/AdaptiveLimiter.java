@@ -0,0 +1,268 @@
+package com.example.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to observed latency (AIMD).
+ *
+ * Latency is tracked per endpoint, since a cache hit and a database query differ by
+ * orders of magnitude. Each endpoint keeps a recent average over about
+ * {@link #RECENT_WINDOW} samples and a baseline average over about
+ * {@link #BASELINE_WINDOW} samples, which follows lasting changes of the database speed.
+ * Averages rather than minimums keep an endpoint that mixes cache hits and misses at a
+ * ratio close to one.
+ *
+ * The limit only adapts while at least half of it is in use: below that, requests do
+ * not queue, and a slow response says nothing about the load. Then it grows by one for
+ * every response within the latency tolerance times the baseline of its endpoint, and
+ * shrinks by {@link #BACKOFF_RATIO} otherwise. At most one decrease happens per latency
+ * period, so one burst of slow responses, all caused by the same overload, shrinks the
+ * limit only once.
+ *
+ * Callers over the limit wait briefly in a bounded queue. Reads are always admitted
+ * before waiting writes and may queue up to the limit, writes only up to half of it.
+ * Callers that do not get in are rejected, so overload is shed fast instead of piling
+ * up in front of the connection pool.
+ */
+public class AdaptiveLimiter {
+
+    static final double BACKOFF_RATIO = 0.9;
+    static final int BASELINE_WINDOW = 500;
+    static final int RECENT_WINDOW = 20;
+    static final int MAX_ENDPOINTS = 256;
+    static final String OTHER_ENDPOINT = "other";
+
+    public enum Priority {
+        READ, WRITE
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readTurn = lock.newCondition();
+    private final Condition writeTurn = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final long maxWaitNanos;
+    private final LongAdder readRejections = new LongAdder();
+    private final LongAdder writeRejections = new LongAdder();
+
+    private double limit;
+    private int inFlight;
+    private int readsWaiting;
+    private int writesWaiting;
+    private final Map<String, EndpointLatency> latencies = new HashMap<>();
+    private long lastDecreaseNanos = System.nanoTime() - (1L << 62);
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, Duration maxWait) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max");
+        }
+
+        if (latencyTolerance <= 1.0) {
+            throw new IllegalArgumentException("Latency tolerance must be greater than 1");
+        }
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Admits the caller, waiting at most the configured time if the limit is reached.
+     * Every admitted call must be paired with {@link #release(long, String)}.
+     *
+     * @param priority priority of the caller, must not be null
+     * @return true if admitted, false if the caller is rejected
+     */
+    public boolean tryAcquire(Priority priority) {
+        boolean read = priority == Priority.READ;
+        lock.lock();
+        try {
+            if (canEnter(read)) {
+                inFlight++;
+
+                return true;
+            }
+
+            int queued = read ? readsWaiting : writesWaiting;
+            int maxQueued = read ? (int) limit : (int) limit / 2;
+            if (queued >= maxQueued || maxWaitNanos <= 0) {
+                reject(read);
+
+                return false;
+            }
+
+            return await(read);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases an admitted call and feeds its latency into the limit.
+     *
+     * @param latencyNanos how long the call took
+     * @param endpoint the endpoint whose latencies the call is compared with, null for
+     *                 calls whose latency says nothing about the load (streaming, bulk),
+     *                 which only give back their slot
+     */
+    public void release(long latencyNanos, String endpoint) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (endpoint != null) {
+                adapt(latencyNanos, endpoint);
+            }
+            wakeUp();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waiting(Priority priority) {
+        lock.lock();
+        try {
+
+            return priority == Priority.READ ? readsWaiting : writesWaiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long rejections(Priority priority) {
+
+        return (priority == Priority.READ ? readRejections : writeRejections).sum();
+    }
+
+    private boolean canEnter(boolean read) {
+
+        return inFlight < (int) limit && (read || readsWaiting == 0);
+    }
+
+    private boolean await(boolean read) {
+        Condition turn = read ? readTurn : writeTurn;
+        long remaining = maxWaitNanos;
+        if (read) {
+            readsWaiting++;
+        } else {
+            writesWaiting++;
+        }
+
+        try {
+            while (!canEnter(read)) {
+                if (remaining <= 0) {
+                    reject(read);
+
+                    return false;
+                }
+                remaining = turn.awaitNanos(remaining);
+            }
+            inFlight++;
+
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(read);
+
+            return false;
+        } finally {
+            if (read) {
+                readsWaiting--;
+                if (readsWaiting == 0) {
+                    // writes held back for this read may enter now
+                    wakeUp();
+                }
+            } else {
+                writesWaiting--;
+            }
+        }
+    }
+
+    private void adapt(long latencyNanos, String endpoint) {
+        EndpointLatency latency = latencies.get(endpoint);
+        if (latency == null) {
+            // endpoints come from the route patterns, the cap only guards against a misconfigured key
+            String key = latencies.size() < MAX_ENDPOINTS ? endpoint : OTHER_ENDPOINT;
+            latency = latencies.computeIfAbsent(key, k -> new EndpointLatency(latencyNanos));
+        }
+        latency.add(latencyNanos);
+
+        if (inFlight + 1 < limit / 2) {
+
+            return;
+        }
+
+        if (latency.recent > latency.baseline * latencyTolerance) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos > latencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = now;
+            }
+        } else {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    private void wakeUp() {
+        int free = (int) limit - inFlight;
+        int reads = Math.min(free, readsWaiting);
+        for (int i = 0; i < reads; i++) {
+            readTurn.signal();
+        }
+        if (readsWaiting == 0) {
+            for (int i = 0; i < Math.min(free, writesWaiting); i++) {
+                writeTurn.signal();
+            }
+        }
+    }
+
+    private void reject(boolean read) {
+        (read ? readRejections : writeRejections).increment();
+    }
+
+    /**
+     * Recent and baseline latency of one endpoint, as moving averages in nanoseconds.
+     */
+    private static final class EndpointLatency {
+
+        private double recent;
+        private double baseline;
+
+        EndpointLatency(long firstLatencyNanos) {
+            this.recent = firstLatencyNanos;
+            this.baseline = firstLatencyNanos;
+        }
+
+        void add(long latencyNanos) {
+            recent += (latencyNanos - recent) / RECENT_WINDOW;
+            baseline += (latencyNanos - baseline) / BASELINE_WINDOW;
+        }
+    }
+}
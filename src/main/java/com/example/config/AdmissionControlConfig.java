@@ -0,0 +1,47 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Adaptive admission control in front of the user API (app.admission.enabled).
+ *
+ * Bounds how many API requests run at once with a limit that follows the observed
+ * latency, so under overload the excess is rejected within milliseconds instead of
+ * every request queueing for a JDBC connection until latency reaches seconds.
+ * See {@link AdaptiveLimiter} for the algorithm.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+    @Bean
+    public AdaptiveLimiter admissionLimiter(
+            @Value("${app.admission.initial-limit:20}") int initialLimit,
+            @Value("${app.admission.min-limit:4}") int minLimit,
+            @Value("${app.admission.max-limit:200}") int maxLimit,
+            @Value("${app.admission.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${app.admission.max-wait:50ms}") Duration maxWait) {
+
+        return new AdaptiveLimiter(initialLimit, minLimit, maxLimit, latencyTolerance, maxWait);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            AdaptiveLimiter admissionLimiter,
+            @Value("${app.admission.retry-after:1s}") Duration retryAfter) {
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionControlFilter(admissionLimiter, retryAfter));
+        registration.addUrlPatterns("/api/users", "/api/users/*");
+        // after the metrics filters, so shed requests still show up in the request metrics
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+
+        return registration;
+    }
+}
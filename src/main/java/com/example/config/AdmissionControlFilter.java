@@ -0,0 +1,83 @@
+package com.example.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Admits API requests through an {@link AdaptiveLimiter} and sheds the rest
+ * with 503 Service Unavailable and a Retry-After header.
+ *
+ * GET, HEAD and POST lookups are reads, everything else is a write. Only requests
+ * that complete on the request thread feed their latency into the limit, keyed by
+ * method and route pattern; streaming responses, batch creates and bulk imports hold
+ * their slot while the request thread runs, but their duration depends on the data
+ * size rather than on the load.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final Logger logger = LogManager.getLogger(AdmissionControlFilter.class);
+
+    private final AdaptiveLimiter limiter;
+    private final String retryAfterSeconds;
+
+    public AdmissionControlFilter(AdaptiveLimiter limiter, Duration retryAfter) {
+        this.limiter = limiter;
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveLimiter.Priority priority = priorityOf(request);
+        if (!limiter.tryAcquire(priority)) {
+            logger.debug("Shedding {} {} at limit {}", request.getMethod(), request.getRequestURI(), limiter.limit());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service is at capacity, retry later");
+
+            return;
+        }
+
+        long start = System.nanoTime();
+        String endpoint = null;
+        try {
+            chain.doFilter(request, response);
+            endpoint = request.isAsyncStarted() || isBulk(request) ? null : endpointOf(request);
+        } finally {
+            limiter.release(System.nanoTime() - start, endpoint);
+        }
+    }
+
+    static AdaptiveLimiter.Priority priorityOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        boolean read = "GET".equals(method) || "HEAD".equals(method)
+                || ("POST".equals(method) && request.getRequestURI().endsWith("/lookup"));
+
+        return read ? AdaptiveLimiter.Priority.READ : AdaptiveLimiter.Priority.WRITE;
+    }
+
+    /**
+     * Method and route pattern of the handled request, so all users share the latencies
+     * of GET /api/users/{id}. Requests no handler matched share one key per method.
+     */
+    static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmatched");
+    }
+
+    private static boolean isBulk(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+
+        return uri.endsWith("/import") || uri.endsWith("/batch");
+    }
+}
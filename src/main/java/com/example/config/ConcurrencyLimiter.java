@@ -0,0 +1,74 @@
+package com.example.config;
+
+import com.example.service.ServiceOverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Fair semaphore that caps how many callers run a section at once.
+ * Callers that cannot get a permit within the timeout are rejected
+ * with {@link ServiceOverloadedException} instead of queueing forever.
+ */
+public class ConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long timeoutNanos;
+
+    public ConcurrencyLimiter(int maxConcurrent, Duration acquireTimeout) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutNanos = acquireTimeout.toNanos();
+    }
+
+    public <T> T call(Supplier<T> section) {
+        acquire();
+        try {
+
+            return section.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Waits up to the configured timeout for a permit.
+     * Every successful call must be paired with {@link #release()}.
+     *
+     * @throws ServiceOverloadedException if no permit became free in time
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Interrupted while waiting for a database slot");
+        }
+
+        if (!acquired) {
+            throw new ServiceOverloadedException("All " + maxConcurrent + " database slots are busy");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int inUse() {
+
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int waiting() {
+
+        return permits.getQueueLength();
+    }
+}
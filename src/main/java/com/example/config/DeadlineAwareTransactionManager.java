@@ -0,0 +1,20 @@
+package com.example.config;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+
+/**
+ * JPA transaction manager that refuses to begin a transaction once the
+ * {@link RequestDeadline} has passed, before a connection is taken from the pool.
+ */
+public class DeadlineAwareTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (RequestDeadline.isExpired()) {
+            throw new TransactionTimedOutException("Request deadline exceeded before the transaction began");
+        }
+        super.doBegin(transaction, definition);
+    }
+}
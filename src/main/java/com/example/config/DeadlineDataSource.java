@@ -0,0 +1,99 @@
+package com.example.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * Gives every JDBC statement created under a {@link RequestDeadline} a query timeout
+ * that ends with the deadline, so the database cancels queries nobody waits for anymore.
+ *
+ * JDBC query timeouts are whole seconds, so the remaining time is rounded up; a timeout
+ * Hibernate or Spring set on the statement is only kept if it is shorter. A statement
+ * created after the deadline has passed fails with SQLTimeoutException instead of
+ * being sent to the database.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        return wrap(super.getConnection(username, password));
+    }
+
+    /**
+     * @param requested timeout asked for by the caller in seconds, 0 for none
+     * @return the timeout to set on the statement
+     */
+    static int effectiveTimeout(int requested) throws SQLTimeoutException {
+        if (!RequestDeadline.isSet()) {
+
+            return requested;
+        }
+
+        long remainingMillis = RequestDeadline.remainingMillis();
+        if (remainingMillis <= 0) {
+            throw new SQLTimeoutException("Request deadline exceeded");
+        }
+
+        int deadlineSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000);
+
+        return requested > 0 ? Math.min(requested, deadlineSeconds) : deadlineSeconds;
+    }
+
+    private static Connection wrap(Connection connection) {
+
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && method.getReturnType().isInterface()
+                            && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        statement.setQueryTimeout(effectiveTimeout(statement.getQueryTimeout()));
+
+                        return Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(),
+                                new Class<?>[]{method.getReturnType()}, new StatementHandler(statement));
+                    }
+
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private record StatementHandler(Statement target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("setQueryTimeout")) {
+                args[0] = effectiveTimeout((Integer) args[0]);
+            }
+
+            return DeadlineDataSource.invoke(target, method, args);
+        }
+    }
+}
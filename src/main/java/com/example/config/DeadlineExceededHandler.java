@@ -0,0 +1,23 @@
+package com.example.config;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.io.IOException;
+
+/**
+ * Answers requests whose deadline ran out in the data access layer with 504,
+ * whether the transaction was refused or the database cancelled the query.
+ */
+@ControllerAdvice
+public class DeadlineExceededHandler {
+
+    @ExceptionHandler({TransactionTimedOutException.class, QueryTimeoutException.class})
+    public void handleDeadlineExceeded(Exception e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), e.getMessage());
+    }
+}
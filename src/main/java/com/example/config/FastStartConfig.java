@@ -0,0 +1,46 @@
+package com.example.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Support for the faststart profile.
+ *
+ * With lazy initialization, the connection pool and the entity manager factory (and
+ * with it the Flyway migration it depends on) are still created at startup: the first
+ * request should not pay for them, and a broken database configuration should fail
+ * the start rather than the first request.
+ *
+ * app.startup.exit-on-ready=true stops the application as soon as it is ready, for
+ * training runs that record a class-data sharing archive.
+ */
+@Configuration
+public class FastStartConfig {
+    private static final Logger logger = LogManager.getLogger(FastStartConfig.class);
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerDataAccess() {
+
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.startup.exit-on-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+
+        return event -> {
+            logger.info("Application ready, exiting as requested by app.startup.exit-on-ready");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.config;
+
+import com.example.service.EmailIndex;
+import com.example.service.IdempotencyStore;
+import com.example.service.SingleFlight;
+import com.example.service.UserCache;
+import com.example.service.UserLookupCoalescer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Application metrics, exposed with the Actuator metrics on the management port
+ * (see management.* in application.properties).
+ *
+ * Request latency (http.server.requests) and connection pool usage and wait time
+ * (hikaricp.connections.*) come from Spring Boot's auto-configuration. This adds
+ * per-method service timers, SQL statements per request and gauges over the
+ * in-process user cache, email index, lookup coalescer, idempotency store,
+ * concurrency limiter and admission limiter.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ServiceMetricsAspect serviceMetricsAspect(MeterRegistry registry) {
+
+        return new ServiceMetricsAspect(registry);
+    }
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(
+            SqlStatementCounter sqlStatementCounter, MeterRegistry registry) {
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatementMetricsFilter(sqlStatementCounter, registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder userCacheMetrics(UserCache userCache, EmailIndex emailIndex,
+                                        UserLookupCoalescer lookupCoalescer, IdempotencyStore idempotencyStore,
+                                        ObjectProvider<ConcurrencyLimiter> concurrencyLimiter,
+                                        ObjectProvider<AdaptiveLimiter> admissionLimiter) {
+
+        return registry -> {
+            counter(registry, "user.cache.requests", userCache, cache -> cache.stats().hits(), "result", "hit");
+            counter(registry, "user.cache.requests", userCache, cache -> cache.stats().misses(), "result", "miss");
+            counter(registry, "user.cache.evictions", userCache, cache -> cache.stats().evictions());
+            Gauge.builder("user.cache.size", userCache, cache -> cache.stats().size()).register(registry);
+
+            Gauge.builder("user.email.index.size", emailIndex, EmailIndex::size).register(registry);
+
+            bindSingleFlight(registry, "id", lookupCoalescer, UserLookupCoalescer::byIdStats);
+            bindSingleFlight(registry, "email", lookupCoalescer, UserLookupCoalescer::byEmailStats);
+
+            counter(registry, "user.idempotency.requests", idempotencyStore, store -> store.stats().executions(),
+                    "result", "executed");
+            counter(registry, "user.idempotency.requests", idempotencyStore, store -> store.stats().replays(),
+                    "result", "replayed");
+            Gauge.builder("user.idempotency.keys", idempotencyStore, store -> store.stats().size()).register(registry);
+
+            concurrencyLimiter.ifAvailable(limiter -> {
+                Gauge.builder("user.db.limiter.in.use", limiter, ConcurrencyLimiter::inUse).register(registry);
+                Gauge.builder("user.db.limiter.waiting", limiter, ConcurrencyLimiter::waiting).register(registry);
+            });
+
+            admissionLimiter.ifAvailable(limiter -> {
+                Gauge.builder("user.admission.limit", limiter, AdaptiveLimiter::limit).register(registry);
+                Gauge.builder("user.admission.in.flight", limiter, AdaptiveLimiter::inFlight).register(registry);
+                for (AdaptiveLimiter.Priority priority : AdaptiveLimiter.Priority.values()) {
+                    String tag = priority.name().toLowerCase(Locale.ROOT);
+                    Gauge.builder("user.admission.waiting", limiter, l -> l.waiting(priority))
+                            .tag("priority", tag)
+                            .register(registry);
+                    counter(registry, "user.admission.rejected", limiter, l -> l.rejections(priority),
+                            "priority", tag);
+                }
+            });
+        };
+    }
+
+    private static void bindSingleFlight(MeterRegistry registry, String key, UserLookupCoalescer coalescer,
+                                         Function<UserLookupCoalescer, SingleFlight.Stats> stats) {
+        counter(registry, "user.lookup.executions", coalescer, c -> stats.apply(c).executions(), "key", key);
+        counter(registry, "user.lookup.collapsed", coalescer, c -> stats.apply(c).collapsed(), "key", key);
+        counter(registry, "user.lookup.timeouts", coalescer, c -> stats.apply(c).timeouts(), "key", key);
+        counter(registry, "user.lookup.retries", coalescer, c -> stats.apply(c).retries(), "key", key);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value,
+                                    String... tags) {
+        FunctionCounter.builder(name, source, value).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.config;
+
+import com.example.controller.ReactiveUserHandler;
+import com.example.repository.ReactiveUserRepository;
+import com.example.service.EmailIndex;
+import com.example.service.ReactiveUserService;
+import com.example.service.ReactiveUserServiceImpl;
+import com.example.service.RecentWrites;
+import com.example.service.UserCache;
+import com.example.service.UserStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+/**
+ * Reactive user API (app.reactive.enabled=true): WebFlux functional routes on a
+ * separate Reactor Netty port (app.reactive.port), backed by R2DBC.
+ *
+ * The servlet stack stays the application's web server; the reactive one only
+ * adds its own port, so consumers with very high fan-out can hold many open
+ * requests without a thread each. The R2DBC pool (app.reactive.r2dbc.*) is used
+ * by the reactive repository only and deliberately not exposed as a
+ * ConnectionFactory bean, which would make Spring Boot set up a second
+ * transaction manager next to the JPA one.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.reactive.enabled", havingValue = "true")
+public class ReactiveUserApiConfig {
+
+    @Bean
+    public ReactiveUserRepository reactiveUserRepository(
+            @Value("${app.reactive.r2dbc.url}") String url,
+            @Value("${app.reactive.r2dbc.username:}") String username,
+            @Value("${app.reactive.r2dbc.password:}") String password,
+            @Value("${app.reactive.r2dbc.pool.initial-size:4}") int initialSize,
+            @Value("${app.reactive.r2dbc.pool.max-size:20}") int maxSize,
+            @Value("${app.users.stream-fetch-size:500}") int fetchSize) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+
+        return new ReactiveUserRepository(pool, fetchSize);
+    }
+
+    @Bean
+    public ReactiveUserService reactiveUserService(ReactiveUserRepository reactiveUserRepository, UserCache userCache,
+                                                   EmailIndex emailIndex, RecentWrites recentWrites,
+                                                   UserStats userStats, ApplicationEventPublisher eventPublisher) {
+
+        return new ReactiveUserServiceImpl(reactiveUserRepository, userCache, emailIndex, recentWrites, userStats,
+                eventPublisher);
+    }
+
+    @Bean
+    public ReactiveUserServer reactiveUserServer(ReactiveUserService reactiveUserService, ObjectMapper objectMapper,
+                                                 @Value("${app.reactive.port:8082}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+
+        return new ReactiveUserServer(RouterFunctions.toHttpHandler(
+                new ReactiveUserHandler(reactiveUserService).routes(), strategies), port);
+    }
+}
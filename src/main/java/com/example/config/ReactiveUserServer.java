@@ -0,0 +1,62 @@
+package com.example.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Reactor Netty server of the reactive user API, next to Tomcat.
+ * Started and stopped with the application context.
+ */
+public class ReactiveUserServer implements SmartLifecycle {
+    private static final Logger logger = LogManager.getLogger(ReactiveUserServer.class);
+
+    private final HttpHandler httpHandler;
+    private final int port;
+    private volatile DisposableServer server;
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public ReactiveUserServer(HttpHandler httpHandler, int port) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        logger.info("Reactive user API listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+
+        return server != null;
+    }
+
+    /**
+     * @return the port the server listens on, -1 if not running
+     */
+    public int getPort() {
+        DisposableServer running = server;
+
+        return running == null ? -1 : running.port();
+    }
+}
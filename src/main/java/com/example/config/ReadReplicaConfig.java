@@ -0,0 +1,82 @@
+package com.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Read/write splitting, enabled by setting app.datasource.replica.jdbc-url.
+ *
+ * The primary pool is configured as before through spring.datasource.*, the replica
+ * pool through app.datasource.replica.* (any HikariCP property, e.g. username,
+ * password, maximum-pool-size, connection-timeout). Transactions marked read-only
+ * run on the replica, all others on the primary. See {@link ReplicaRoutingDataSource}
+ * for the routing and the fallback when the replica is down.
+ *
+ * Without the property, Spring Boot's single auto-configured data source is used.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.jdbc-url")
+public class ReadReplicaConfig {
+    private static final Logger logger = LogManager.getLogger(ReadReplicaConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        // start even while the replica is down, reads fall back to the primary
+        dataSource.setInitializationFailTimeout(-1);
+
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${app.datasource.routing.retry-after:10s}") Duration retryAfter) {
+        logger.info("Read-only transactions are routed to the replica");
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, retryAfter);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+
+        return registry -> Gauge.builder("user.db.replica.available", replicaRoutingDataSource,
+                        routing -> routing.isReplicaAvailable() ? 1 : 0)
+                .register(registry);
+    }
+}
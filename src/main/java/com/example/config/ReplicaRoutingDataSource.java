@@ -0,0 +1,118 @@
+package com.example.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else
+ * to the primary.
+ *
+ * The routing decision needs the read-only flag of the current transaction, which
+ * Spring only publishes after the transaction manager has begun the transaction, so
+ * this data source must sit behind a LazyConnectionDataSourceProxy that defers the
+ * real connection until the first statement.
+ *
+ * If the replica cannot hand out a connection, the read falls back to the primary and
+ * the replica is skipped for the retry period, so an outage costs one connection
+ * timeout per period instead of one per request.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LogManager.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryAfterMillis;
+    private volatile long replicaDownUntil;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration retryAfter) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryAfterMillis = retryAfter.toMillis();
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs the action with all reads of the current thread on the primary,
+     * for reads that must see a write the replica may not have applied yet.
+     * Only affects transactions that get their connection inside the action.
+     *
+     * @param action the reads to run, must not be null
+     * @return the result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && PRIMARY_FORCED.get() == null
+                && System.currentTimeMillis() >= replicaDownUntil;
+
+        return replicaRead ? Target.REPLICA : Target.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.REPLICA) {
+            try {
+
+                return replica.getConnection();
+            } catch (SQLException e) {
+                replicaUnavailable(e);
+            }
+        }
+
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (determineCurrentLookupKey() == Target.REPLICA) {
+            try {
+
+                return replica.getConnection(username, password);
+            } catch (SQLException e) {
+                replicaUnavailable(e);
+            }
+        }
+
+        return primary.getConnection(username, password);
+    }
+
+    public boolean isReplicaAvailable() {
+
+        return System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    private void replicaUnavailable(SQLException e) {
+        replicaDownUntil = System.currentTimeMillis() + retryAfterMillis;
+        logger.warn("Replica unavailable, reading from the primary for the next {} ms: {}",
+                retryAfterMillis, e.getMessage());
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Time budget of a controller endpoint, replacing app.deadline.default-budget.
+ * A shorter deadline sent by the client in the request still wins.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequestBudget {
+
+    /**
+     * Budget in milliseconds, 0 for no server-side budget (long-running endpoints).
+     */
+    long value();
+}
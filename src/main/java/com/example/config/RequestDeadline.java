@@ -0,0 +1,55 @@
+package com.example.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline of the request handled by the current thread.
+ *
+ * Set by {@link RequestDeadlineInterceptor} when a request comes in and read further
+ * down by the transaction manager and the JDBC layer, so the service and repository
+ * code in between does not have to pass it along.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Starts a deadline for the current thread.
+     *
+     * @param budgetMillis time the request may still take, in milliseconds
+     */
+    public static void start(long budgetMillis) {
+        DEADLINE.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    public static boolean isSet() {
+
+        return DEADLINE.get() != null;
+    }
+
+    /**
+     * @return milliseconds left until the deadline, 0 or less once it has passed,
+     *         Long.MAX_VALUE if no deadline is set
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+
+            return Long.MAX_VALUE;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    public static boolean isExpired() {
+
+        return remainingMillis() <= 0;
+    }
+}
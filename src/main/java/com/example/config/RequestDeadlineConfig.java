@@ -0,0 +1,47 @@
+package com.example.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Request deadlines on the data access side, see {@link RequestDeadlineWebConfig}
+ * for where they are set.
+ *
+ * The application data source is wrapped in a {@link DeadlineDataSource} so every
+ * statement gets a query timeout that ends with the deadline, and the transaction
+ * manager rejects transactions of expired requests before they take a connection.
+ */
+@Configuration
+public class RequestDeadlineConfig {
+
+    @Bean
+    public JpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new DeadlineAwareTransactionManager();
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+
+        return transactionManager;
+    }
+
+    @Bean
+    public static BeanPostProcessor deadlineDataSourcePostProcessor() {
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // only the data source the application uses, not the pools behind a routing data source
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")) {
+
+                    return new DeadlineDataSource(dataSource);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Starts the {@link RequestDeadline} of every API request.
+ *
+ * The deadline is the shorter of the client's budget (header X-Request-Timeout-Ms,
+ * milliseconds the client is still willing to wait) and the endpoint's budget
+ * ({@link RequestBudget}, or the default budget). A request that arrives with no
+ * time left is answered with 504 before any work is done.
+ *
+ * Streaming responses are written on another thread and are not bound by the deadline.
+ */
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final long defaultBudgetMillis;
+
+    public RequestDeadlineInterceptor(Duration defaultBudget) {
+        this.defaultBudgetMillis = defaultBudget.toMillis();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        long budget = endpointBudget(handler);
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            long clientBudget;
+            try {
+                clientBudget = Long.parseLong(header.trim());
+            } catch (NumberFormatException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), TIMEOUT_HEADER + " must be a number of milliseconds");
+
+                return false;
+            }
+
+            if (clientBudget <= 0) {
+                response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), "Request deadline has already passed");
+
+                return false;
+            }
+            budget = budget > 0 ? Math.min(budget, clientBudget) : clientBudget;
+        }
+
+        if (budget > 0) {
+            RequestDeadline.start(budget);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        RequestDeadline.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    private long endpointBudget(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            RequestBudget budget = handlerMethod.getMethodAnnotation(RequestBudget.class);
+            if (budget != null) {
+
+                return budget.value();
+            }
+        }
+
+        return defaultBudgetMillis;
+    }
+}
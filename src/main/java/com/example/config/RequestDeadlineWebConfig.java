@@ -0,0 +1,28 @@
+package com.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Starts a {@link RequestDeadline} for every user API request
+ * (app.deadline.default-budget, overridden per endpoint with {@link RequestBudget}).
+ */
+@Configuration
+public class RequestDeadlineWebConfig implements WebMvcConfigurer {
+
+    private final Duration defaultBudget;
+
+    public RequestDeadlineWebConfig(@Value("${app.deadline.default-budget:5s}") Duration defaultBudget) {
+        this.defaultBudget = defaultBudget;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestDeadlineInterceptor(defaultBudget))
+                .addPathPatterns("/api/users", "/api/users/**");
+    }
+}
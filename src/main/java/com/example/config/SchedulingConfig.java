@@ -0,0 +1,13 @@
+package com.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background work, run on Spring Boot's task scheduler
+ * (one thread by default, see spring.task.scheduling.*).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
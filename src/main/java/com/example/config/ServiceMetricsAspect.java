@@ -0,0 +1,80 @@
+package com.example.config;
+
+import com.example.service.UserNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every UserService call as "user.service", tagged with the method name
+ * and the outcome:
+ * - found / not_found for methods returning Optional
+ * - success for everything else that returned normally
+ * - not_found for UserNotFoundException, a write to a missing user
+ * - validation_error for any other IllegalArgumentException
+ * - error for any other exception
+ *
+ * Runs outermost, so the time includes waiting for a concurrency limiter permit.
+ * Timers are resolved once per method and outcome and then reused.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+
+    public static final String METRIC_NAME = "user.service";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(* com.example.service.UserService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = outcomeOf(result);
+
+            return result;
+        } catch (UserNotFoundException e) {
+            outcome = "not_found";
+            throw e;
+        } catch (IllegalArgumentException e) {
+            outcome = "validation_error";
+            throw e;
+        } finally {
+            timer(method, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcomeOf(Object result) {
+        if (result instanceof Optional<?> optional) {
+
+            return optional.isPresent() ? "found" : "not_found";
+        }
+
+        return "success";
+    }
+
+    private Timer timer(String method, String outcome) {
+
+        return timers.computeIfAbsent(method + '|' + outcome, key -> Timer.builder(METRIC_NAME)
+                .description("Latency of UserService calls")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections to the shard selected for the current thread with
+ * {@link #onShard(int, Supplier)}, and to shard 0 when none is selected.
+ *
+ * The shard must be selected before the transaction takes its connection. Like
+ * {@link ReplicaRoutingDataSource}, this data source sits behind a
+ * LazyConnectionDataSourceProxy, so a transaction started before the shard was
+ * selected does not hold a connection of shard 0 that it never uses.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<? extends DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Runs the action with all connections of the current thread taken from the given shard.
+     * Only affects transactions that get their connection inside the action.
+     *
+     * @param shard the shard number
+     * @param action the data access to run, must not be null
+     * @return the result of the action
+     */
+    public static <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return the shard selected for the current thread, 0 if none is
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+
+        return shard == null ? 0 : shard;
+    }
+
+    public int shardCount() {
+
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+
+        return shards.get(shard);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        return currentShard();
+    }
+
+    /**
+     * Closes the connection pools of all shards.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable pool) {
+                pool.close();
+            }
+        }
+    }
+}
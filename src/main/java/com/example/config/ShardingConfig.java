@@ -0,0 +1,105 @@
+package com.example.config;
+
+import com.example.entity.ShardedSequenceGenerator;
+import com.example.repository.EmailShardDirectory;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash-partitioned sharding of the users table, enabled by setting
+ * app.datasource.shards.1.jdbc-url.
+ *
+ * Shard 0 is the database configured through spring.datasource.*, so the users of an
+ * unsharded database stay where they are. Shards 1, 2, ... are configured through
+ * app.datasource.shards.N.* (any HikariCP property, e.g. username, password,
+ * maximum-pool-size) and numbered without gaps. Their schema is created and migrated
+ * with the Flyway migrations in db/migration at startup. Shard 0 also holds the
+ * email directory ({@link EmailShardDirectory}).
+ *
+ * See {@link ShardRoutingDataSource} for the routing and UserShards for which shard
+ * each operation uses. Sharding cannot be combined with a read replica or the
+ * reactive API, which both address a single database.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.shards.1.jdbc-url")
+public class ShardingConfig {
+    private static final Logger logger = LogManager.getLogger(ShardingConfig.class);
+
+    private static final String SHARDS_PREFIX = "app.datasource.shards.";
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties, Environment environment,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        if (environment.containsProperty("app.datasource.replica.jdbc-url")
+                || environment.getProperty("app.reactive.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("Sharding cannot be combined with a read replica or the reactive API");
+        }
+
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> shards = new ArrayList<>();
+        HikariDataSource first = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(first));
+        shards.add(first);
+        for (int shard = 1; environment.containsProperty(SHARDS_PREFIX + shard + ".jdbc-url"); shard++) {
+            if (shard == ShardedSequenceGenerator.MAX_SHARDS) {
+                throw new IllegalStateException("At most " + ShardedSequenceGenerator.MAX_SHARDS + " shards are supported");
+            }
+            HikariDataSource dataSource = new HikariDataSource();
+            binder.bind(SHARDS_PREFIX + shard, Bindable.ofInstance(dataSource));
+            shards.add(dataSource);
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            shards.get(shard).setPoolName("shard-" + shard);
+            if (registry != null) {
+                // the pools are no beans, so Spring Boot does not bind their metrics
+                shards.get(shard).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        }
+
+        for (int shard = 1; shard < shards.size(); shard++) {
+            Flyway.configure()
+                    .dataSource(shards.get(shard))
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .load()
+                    .migrate();
+        }
+        logger.info("Users are sharded over {} databases", shards.size());
+
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public EmailShardDirectory emailShardDirectory(ShardRoutingDataSource shardRoutingDataSource) {
+        EmailShardDirectory directory = new EmailShardDirectory(shardRoutingDataSource.getShard(0));
+        directory.initialize();
+
+        return directory;
+    }
+}
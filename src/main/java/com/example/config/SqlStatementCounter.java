@@ -0,0 +1,31 @@
+package com.example.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ *
+ * Registered as Hibernate's statement inspector; it leaves the SQL unchanged.
+ * {@link SqlStatementMetricsFilter} resets the count when a request starts
+ * and records it when the request ends.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+
+        return sql;
+    }
+
+    public void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public int count() {
+
+        return COUNT.get()[0];
+    }
+}
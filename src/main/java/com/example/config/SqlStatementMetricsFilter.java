@@ -0,0 +1,56 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request issued as the
+ * "http.server.requests.sql.statements" summary, tagged by HTTP method and URI pattern.
+ *
+ * Only statements run on the request thread are counted, so streaming responses
+ * that query from an async thread are skipped rather than reported as zero.
+ */
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    public static final String METRIC_NAME = "http.server.requests.sql.statements";
+
+    private final SqlStatementCounter counter;
+    private final MeterRegistry registry;
+
+    public SqlStatementMetricsFilter(SqlStatementCounter counter, MeterRegistry registry) {
+        this.counter = counter;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        counter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                record(request);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder(METRIC_NAME)
+                .description("SQL statements issued per request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .register(registry)
+                .record(counter.count());
+    }
+}
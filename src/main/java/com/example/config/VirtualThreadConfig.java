@@ -0,0 +1,97 @@
+package com.example.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in virtual-thread execution mode (app.threads.virtual.enabled=true, Java 21+ runtime).
+ *
+ * Tomcat runs every request, and with it every blocking JDBC call in the service layer,
+ * on its own virtual thread instead of the bounded platform-thread pool. Async work
+ * (streaming responses) runs on virtual threads as well.
+ *
+ * Because virtual threads are practically unlimited, all UserService calls go through
+ * a fair semaphore sized to the connection pool, so a burst parks cheaply in front of
+ * the pool instead of piling into Hikari's wait queue and timing out there.
+ *
+ * The JDBC driver (pgjdbc 42.6) and Hikari guard their I/O with j.u.c locks, and the
+ * in-process caches only hold monitors around non-blocking work, so queries do not pin
+ * carrier threads. Log4j2 appenders still write under a monitor, so a log call may pin
+ * its carrier for the duration of the write. Run with -Djdk.tracePinnedThreads=short to verify.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger logger = LogManager.getLogger(VirtualThreadConfig.class);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        logger.info("Virtual-thread execution mode enabled");
+
+        return VirtualThreads.newThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean
+    public ConcurrencyLimiter databaseConcurrencyLimiter(
+            @Value("${app.threads.virtual.max-concurrent-db-calls:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${app.threads.virtual.acquire-timeout:2s}") Duration acquireTimeout) {
+
+        return new ConcurrencyLimiter(maxConcurrent, acquireTimeout);
+    }
+
+    @Bean
+    public UserServiceConcurrencyAspect userServiceConcurrencyAspect(ConcurrencyLimiter databaseConcurrencyLimiter) {
+
+        return new UserServiceConcurrencyAspect(databaseConcurrencyLimiter);
+    }
+
+    /**
+     * Bounds concurrent UserService calls, each of which may hold a JDBC connection.
+     */
+    @Aspect
+    public static class UserServiceConcurrencyAspect {
+
+        private final ConcurrencyLimiter limiter;
+
+        public UserServiceConcurrencyAspect(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Around("execution(* com.example.service.UserService.*(..))")
+        public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+            limiter.acquire();
+            try {
+
+                return joinPoint.proceed();
+            } finally {
+                limiter.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without compiling against Java 21.
+ * The project targets Java 17, so the factory is looked up reflectively
+ * and only works when the service runs on a Java 21+ runtime.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_EXECUTOR = findExecutorFactory();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return the executor
+     * @throws IllegalStateException if the runtime does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer, running on "
+                    + Runtime.version());
+        }
+
+        try {
+
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    private static Method findExecutorFactory() {
+        try {
+
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+
+            return null;
+        }
+    }
+}
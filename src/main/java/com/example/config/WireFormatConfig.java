@@ -0,0 +1,38 @@
+package com.example.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary wire formats for service-to-service calls, next to the default JSON.
+ *
+ * Clients opt in per request with Accept / Content-Type application/cbor or
+ * application/x-jackson-smile. Both encode the same Jackson data model as JSON,
+ * so DTOs need no changes, but numbers are binary and Smile also back-references
+ * repeated field names, which makes large lists smaller and cheaper to decode.
+ *
+ * Spring MVC would register both converters on its own once the dataformats are on
+ * the classpath, but with a plain ObjectMapper. Declaring them as beans makes Boot
+ * put these in their place, built from the same spring.jackson.* configuration as JSON.
+ * JSON stays first in the list and therefore remains the default for Accept: *&#47;*.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
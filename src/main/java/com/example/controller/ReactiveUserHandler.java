@@ -0,0 +1,196 @@
+package com.example.controller;
+
+import com.example.dto.UserDTO;
+import com.example.dto.UserPageDTO;
+import com.example.entity.UserEntity;
+import com.example.service.ExportFormat;
+import com.example.service.ReactiveUserService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+
+/**
+ * Reactive variant of the user API (WebFlux functional routes), served on its own port.
+ *
+ * Mirrors the single-user, list, page and export endpoints of {@link UserController}
+ * with the same paths, ETag/If-Match handling and status codes. Lists and exports are
+ * streamed with backpressure: Netty only asks for more users when the previous ones
+ * have been written to the socket, and R2DBC only reads them when asked.
+ * GET /api/users answers with NDJSON when Accept asks for it, otherwise a JSON array.
+ */
+public class ReactiveUserHandler {
+
+    private static final int CSV_LINES_PER_WRITE = 256;
+
+    private final ReactiveUserService userService;
+
+    public ReactiveUserHandler(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+
+        return RouterFunctions.route()
+                .path("/api/users", builder -> builder
+                        .GET("/export", this::exportUsers)
+                        .GET("/email/{email}", this::getUserByEmail)
+                        .GET("/{id:\\d+}", this::getUserById)
+                        .PUT("/{id:\\d+}", this::updateUser)
+                        .DELETE("/{id:\\d+}", this::deleteUser)
+                        .GET("", queryParam("limit", limit -> true), this::getUsersPage)
+                        .GET("", this::getAllUsers)
+                        .POST("", this::createUser))
+                .build();
+    }
+
+    Mono<ServerResponse> createUser(ServerRequest request) {
+
+        return request.bodyToMono(UserDTO.class)
+                .map(dto -> new UserEntity(dto.getName(), dto.getEmail(), dto.getAge()))
+                .flatMap(userService::createUser)
+                .flatMap(user -> ServerResponse.status(HttpStatus.CREATED)
+                        .eTag(UserController.etag(user.getVersion()))
+                        .bodyValue(user));
+    }
+
+    /**
+     * Returns the user with its version as ETag, 304 if If-None-Match already has it.
+     */
+    Mono<ServerResponse> getUserById(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+
+        return userService.getUserById(id)
+                .flatMap(user -> {
+                    String etag = UserController.etag(user.getVersion());
+                    if (matchesIfNoneMatch(request, etag)) {
+
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+
+                    return ServerResponse.ok().eTag(etag).bodyValue(user);
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    Mono<ServerResponse> getUserByEmail(ServerRequest request) {
+
+        return userService.getUserByEmail(request.pathVariable("email"))
+                .flatMap(user -> ServerResponse.ok().bodyValue(user))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    Mono<ServerResponse> getAllUsers(ServerRequest request) {
+        boolean ndjson = request.headers().accept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+
+        return ServerResponse.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(userService.getAllUsers(), UserDTO.class);
+    }
+
+    Mono<ServerResponse> getUsersPage(ServerRequest request) {
+        Long after = request.queryParam("after").map(Long::valueOf).orElse(null);
+        int limit = Integer.parseInt(request.queryParam("limit").orElseThrow());
+
+        return userService.getUsersAfter(after, limit)
+                .collectList()
+                .flatMap(users -> ServerResponse.ok().bodyValue(new UserPageDTO(users,
+                        users.size() == limit ? users.get(users.size() - 1).getId() : null)));
+    }
+
+    /**
+     * Exports all users as CSV (default) or NDJSON, in the format of the MVC export.
+     */
+    Mono<ServerResponse> exportUsers(ServerRequest request) {
+        ExportFormat format = ExportFormat.fromParam(request.queryParam("format").orElse("csv"));
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("users." + format.getFileExtension())
+                .build();
+        ServerResponse.BodyBuilder response = ServerResponse.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        if (format == ExportFormat.NDJSON) {
+
+            return response.body(userService.getAllUsers(), UserDTO.class);
+        }
+
+        Flux<String> csv = Flux.concat(
+                Mono.just("id,name,email,age,version\r\n"),
+                userService.getAllUsers()
+                        .map(ReactiveUserHandler::csvLine)
+                        .buffer(CSV_LINES_PER_WRITE)
+                        .map(lines -> String.join("", lines)));
+
+        return response.body(csv, String.class);
+    }
+
+    Mono<ServerResponse> updateUser(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        Long expectedVersion = UserController.parseIfMatch(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+
+        return request.bodyToMono(UserDTO.class)
+                .map(dto -> {
+                    UserEntity userEntity = new UserEntity(id, dto.getName(), dto.getEmail(), dto.getAge());
+                    userEntity.setVersion(expectedVersion);
+
+                    return userEntity;
+                })
+                .flatMap(userService::updateUser)
+                .flatMap(user -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok();
+                    if (user.getVersion() != null) {
+                        response.eTag(UserController.etag(user.getVersion()));
+                    }
+
+                    return response.bodyValue(user);
+                });
+    }
+
+    Mono<ServerResponse> deleteUser(ServerRequest request) {
+        Long id = Long.valueOf(request.pathVariable("id"));
+        Long expectedVersion = UserController.parseIfMatch(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+
+        return userService.deleteUser(id, expectedVersion)
+                .then(ServerResponse.noContent().build());
+    }
+
+    private static boolean matchesIfNoneMatch(ServerRequest request, String etag) {
+        List<String> ifNoneMatch = request.headers().header(HttpHeaders.IF_NONE_MATCH);
+
+        return ifNoneMatch.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .anyMatch(tag -> tag.equals(etag) || tag.equals("*"));
+    }
+
+    /**
+     * One RFC 4180 CSV line, quoting fields that contain separators, quotes or line breaks.
+     */
+    static String csvLine(UserDTO user) {
+
+        return user.getId() + "," + csvField(user.getName()) + "," + csvField(user.getEmail()) + ","
+                + user.getAge() + "," + user.getVersion() + "\r\n";
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+
+            return value;
+        }
+
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -1,77 +1,463 @@
 package com.example.controller;
 
+import com.example.config.RequestBudget;
+import com.example.dto.BatchItemResultDTO;
 import com.example.dto.UserDTO;
+import com.example.dto.UserImportErrorDTO;
+import com.example.dto.UserImportReportDTO;
+import com.example.dto.UserLookupRequestDTO;
+import com.example.dto.UserLookupResultDTO;
+import com.example.dto.UserPageDTO;
+import com.example.dto.UserStatsDTO;
 import com.example.entity.UserEntity;
+import com.example.service.BatchCreateResult;
+import com.example.service.ExportFormat;
+import com.example.service.IdempotencyStore;
+import com.example.service.UserChangeFeed;
+import com.example.service.UserExportService;
+import com.example.service.UserImportReport;
+import com.example.service.UserImportService;
+import com.example.service.UserPatch;
 import com.example.service.UserService;
+import com.example.service.UserStatistics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final UserChangeFeed userChangeFeed;
+    private final IdempotencyStore idempotencyStore;
+    private final Map<MediaType, ObjectMapper> streamMappers = new LinkedHashMap<>();
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserExportService userExportService,
+                          UserImportService userImportService, UserChangeFeed userChangeFeed,
+                          IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.userChangeFeed = userChangeFeed;
+        this.idempotencyStore = idempotencyStore;
+        this.streamMappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        this.streamMappers.put(MediaType.APPLICATION_CBOR, objectMapper.copyWith(new CBORFactory()));
+        this.streamMappers.put(APPLICATION_SMILE, objectMapper.copyWith(new SmileFactory()));
     }
 
+    /**
+     * Creates a user. With an Idempotency-Key header, a retry of the same request
+     * returns the stored 201 response (marked with Idempotent-Replayed: true)
+     * instead of creating the user again, and a concurrent duplicate waits for the original.
+     */
+    @RequestBudget(2000)
     @PostMapping
-    public ResponseEntity<UserDTO> createUser(@RequestBody UserDTO userDTO) {
+    public ResponseEntity<UserDTO> createUser(@RequestBody UserDTO userDTO,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
         UserEntity userEntity = new UserEntity(userDTO.getName(), userDTO.getEmail(), userDTO.getAge());
-        UserEntity createdUser = userService.createUser(userEntity);
+        if (idempotencyKey == null) {
+            UserDTO createdUser = UserDTO.from(userService.createUser(userEntity));
+
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .eTag(etag(createdUser.getVersion()))
+                    .body(createdUser);
+        }
+
+        // the key is bound to the fields a client sends, not to an ID or version it might echo back
+        UserDTO request = new UserDTO(null, userDTO.getName(), userDTO.getEmail(), userDTO.getAge());
+        IdempotencyStore.Outcome outcome = idempotencyStore.execute(idempotencyKey, request,
+                () -> UserDTO.from(userService.createUser(userEntity)));
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(createdUser));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(etag(outcome.user().getVersion()))
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(outcome.user());
     }
 
+    /**
+     * Returns the user with its version as ETag. With If-None-Match, the version is
+     * checked first (from the cache or a version-only query) and an unchanged user
+     * is answered with 304 Not Modified without loading or serializing the body.
+     */
+    @RequestBudget(2000)
     @GetMapping("/{id}")
-    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
-        Optional<UserEntity> user = userService.getUserById(id);
+    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = userService.getUserVersion(id);
+            if (version.isPresent() && request.checkNotModified(etag(version.get()))) {
+
+                return null;
+            }
+        }
+
+        Optional<UserDTO> user = userService.getUserById(id);
 
-        return user.map(u -> ResponseEntity.ok(toDTO(u)))
+        return user.map(u -> ResponseEntity.ok().eTag(etag(u.getVersion())).body(u))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    @GetMapping
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        List<UserEntity> users = userService.getAllUsers();
-        List<UserDTO> userDTOs = users.stream()
-                .map(this::toDTO)
+    @RequestBudget(10000)
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResultDTO>> createUsers(@RequestBody List<UserDTO> userDTOs) {
+        List<UserEntity> userEntities = userDTOs.stream()
+                .map(dto -> dto == null ? null : new UserEntity(dto.getName(), dto.getEmail(), dto.getAge()))
+                .collect(Collectors.toList());
+        List<BatchItemResultDTO> results = userService.createUsers(userEntities).stream()
+                .map(UserController::toDTO)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(userDTOs);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Streams every user as an array straight from a database cursor.
+     * Memory use stays flat regardless of the table size. The body is written
+     * outside the message converters, so the format is negotiated here: JSON
+     * unless Accept prefers CBOR or Smile.
+     */
+    @RequestBudget(0)
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getAllUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = selectStreamType(accept);
+        ObjectMapper mapper = streamMappers.get(mediaType);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                userService.forEachUser(user -> {
+                    try {
+                        generator.writeObject(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    /**
+     * Exports all users as CSV (default) or NDJSON, streamed row by row
+     * from a database cursor for bulk consumers.
+     */
+    @RequestBudget(0)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "csv") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> userExportService.export(exportFormat, out);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("users." + exportFormat.getFileExtension())
+                .build();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+
+    /**
+     * Imports users from an uploaded CSV with name, email and age columns.
+     * Responds with the import report once the whole file has been processed.
+     */
+    @RequestBudget(0)
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<UserImportReportDTO> importUsers(@RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+
+            return ResponseEntity.ok(toDTO(userImportService.importUpload(in)));
+        }
+    }
+
+    /**
+     * Imports users from a CSV in the server's import directory.
+     * Running it again after a failure resumes from the last committed chunk.
+     */
+    @RequestBudget(0)
+    @PostMapping(value = "/import", params = "path")
+    public ResponseEntity<UserImportReportDTO> importUsersFromPath(@RequestParam String path) throws IOException {
+
+        return ResponseEntity.ok(toDTO(userImportService.importFromPath(path)));
+    }
+
+    @GetMapping(params = {"limit", "!ids"})
+    public ResponseEntity<UserPageDTO> getUsersPage(@RequestParam(required = false) Long after,
+                                                    @RequestParam int limit) {
+        List<UserDTO> userDTOs = userService.getUsersAfter(after, limit);
+        Long next = userDTOs.size() == limit ? userDTOs.get(userDTOs.size() - 1).getId() : null;
+
+        return ResponseEntity.ok(new UserPageDTO(userDTOs, next));
+    }
+
+    /**
+     * Looks up the given users. Takes precedence over paging, a limit next to ids is ignored.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserLookupResultDTO> getUsersByIds(@RequestParam List<Long> ids) {
+        List<UserDTO> users = userService.getUsersByIds(ids);
+
+        return ResponseEntity.ok(toLookupResult(ids, users, List.of(), List.of()));
+    }
+
+    @RequestBudget(10000)
+    @PostMapping("/lookup")
+    public ResponseEntity<UserLookupResultDTO> lookupUsers(@RequestBody UserLookupRequestDTO request) {
+        List<Long> ids = request.getIds() == null ? List.of() : request.getIds();
+        List<String> emails = request.getEmails() == null ? List.of() : request.getEmails();
+        List<UserDTO> byId = ids.isEmpty() ? List.of() : userService.getUsersByIds(ids);
+        List<UserDTO> byEmail = emails.isEmpty() ? List.of() : userService.getUsersByEmails(emails);
+
+        return ResponseEntity.ok(toLookupResult(ids, byId, emails, byEmail));
     }
 
+    @RequestBudget(2000)
     @GetMapping("/email/{email}")
     public ResponseEntity<UserDTO> getUserByEmail(@PathVariable String email) {
-        Optional<UserEntity> user = userService.getUserByEmail(email);
+        Optional<UserDTO> user = userService.getUserByEmail(email);
 
-        return user.map(u -> ResponseEntity.ok(toDTO(u)))
+        return user.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Returns user count and age statistics. Served from in-memory aggregates,
+     * so dashboards can poll it without loading the database.
+     */
+    @RequestBudget(2000)
+    @GetMapping("/stats")
+    public ResponseEntity<UserStatsDTO> getStatistics() {
+
+        return ResponseEntity.ok(toDTO(userService.getStatistics()));
+    }
+
+    /**
+     * Streams user changes as Server-Sent Events ("created", "updated", "patched", "deleted"),
+     * for consumers that would otherwise poll the user list. A reconnecting client
+     * sends Last-Event-ID and continues after that event, or gets "resync" if the
+     * events in between are no longer available.
+     */
+    @RequestBudget(0)
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        return userChangeFeed.subscribe(lastEventId);
+    }
+
+    /**
+     * Overwrites the user. With If-Match, the update only applies while the user
+     * is still at that version, otherwise 412 Precondition Failed is returned.
+     * Either way the response carries the new version as ETag.
+     */
+    @RequestBudget(2000)
     @PutMapping("/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO) {
+    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         UserEntity userEntity = new UserEntity(id, userDTO.getName(), userDTO.getEmail(), userDTO.getAge());
+        userEntity.setVersion(parseIfMatch(ifMatch));
         UserEntity updatedUser = userService.updateUser(userEntity);
 
-        return ResponseEntity.ok(toDTO(updatedUser));
+        return ResponseEntity.ok()
+                .eTag(etag(updatedUser.getVersion()))
+                .body(UserDTO.from(updatedUser));
+    }
+
+    /**
+     * Changes only the fields present in the JSON merge patch (RFC 7396), with one
+     * UPDATE of those columns and no read. Answers 204 No Content, since the full user
+     * is not loaded, with the new version as ETag.
+     */
+    @RequestBudget(2000)
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchUser(@PathVariable Long id, @RequestBody JsonNode patch,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDTO patchedUser = userService.patchUser(id, toUserPatch(patch), parseIfMatch(ifMatch));
+
+        return ResponseEntity.noContent()
+                .eTag(etag(patchedUser.getVersion()))
+                .build();
     }
 
+    /**
+     * Deletes the user. With If-Match, only while the user is still at that version.
+     */
+    @RequestBudget(2000)
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        userService.deleteUser(id);
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUser(id, parseIfMatch(ifMatch));
 
         return ResponseEntity.noContent().build();
     }
 
-    private UserDTO toDTO(UserEntity user) {
+    /**
+     * Picks the streaming format with the highest quality in Accept,
+     * falling back to JSON when nothing else matches.
+     */
+    MediaType selectStreamType(String accept) {
+        if (accept == null || accept.isBlank()) {
+
+            return MediaType.APPLICATION_JSON;
+        }
+
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType acceptedType : accepted) {
+            for (MediaType streamType : streamMappers.keySet()) {
+                if (acceptedType.includes(streamType)) {
+
+                    return streamType;
+                }
+            }
+        }
+
+        return MediaType.APPLICATION_JSON;
+    }
+
+    static String etag(Long version) {
+
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Parses a single strong entity tag from If-Match.
+     *
+     * @return the expected version, null if the header is absent or "*"
+     * @throws IllegalArgumentException if the header is not a single version tag
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be a single quoted version, got " + ifMatch);
+        }
+
+        try {
+
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a single quoted version, got " + ifMatch);
+        }
+    }
+
+    /**
+     * Reads a merge patch of a user. Removing a member (null) is rejected since
+     * every field is required, so are members that cannot be changed.
+     *
+     * @throws IllegalArgumentException if the patch is not an object of name, email and age
+     */
+    static UserPatch toUserPatch(JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+
+        String name = null;
+        String email = null;
+        Integer age = null;
+        for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isNull()) {
+                throw new IllegalArgumentException("User " + field.getKey() + " cannot be removed");
+            }
+            switch (field.getKey()) {
+                case "name" -> name = patchText(field.getKey(), value);
+                case "email" -> email = patchText(field.getKey(), value);
+                case "age" -> {
+                    if (!value.isIntegralNumber() || !value.canConvertToInt()) {
+                        throw new IllegalArgumentException("User age must be an integer");
+                    }
+                    age = value.intValue();
+                }
+                default -> throw new IllegalArgumentException("User " + field.getKey() + " cannot be patched");
+            }
+        }
+
+        return new UserPatch(name, email, age);
+    }
+
+    private static String patchText(String field, JsonNode value) {
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException("User " + field + " must be a string");
+        }
+
+        return value.textValue();
+    }
+
+    static BatchItemResultDTO toDTO(BatchCreateResult result) {
+        if (result.isSuccess()) {
+
+            return new BatchItemResultDTO(result.index(), BatchItemResultDTO.CREATED, UserDTO.from(result.user()), null);
+        }
+
+        return new BatchItemResultDTO(result.index(), BatchItemResultDTO.FAILED, null, result.error());
+    }
+
+    static UserImportReportDTO toDTO(UserImportReport report) {
+        List<UserImportErrorDTO> errors = report.errors().stream()
+                .map(error -> new UserImportErrorDTO(error.line(), error.error()))
+                .collect(Collectors.toList());
+
+        return new UserImportReportDTO(report.rowsRead(), report.imported(), report.failed(),
+                report.resumedFromLine(), report.durationMs(), errors);
+    }
+
+    static UserStatsDTO toDTO(UserStatistics statistics) {
+
+        return new UserStatsDTO(statistics.total(), statistics.minAge(),
+                statistics.maxAge(), statistics.meanAge(), statistics.ageHistogram(), statistics.reconciledAt());
+    }
+
+    private static UserLookupResultDTO toLookupResult(List<Long> ids, List<UserDTO> byId,
+                                                      List<String> emails, List<UserDTO> byEmail) {
+        Map<Long, UserDTO> users = new LinkedHashMap<>();
+        byId.forEach(user -> users.put(user.getId(), user));
+        byEmail.forEach(user -> users.putIfAbsent(user.getId(), user));
+
+        Set<Long> foundIds = users.keySet();
+        Set<String> foundEmails = byEmail.stream().map(UserDTO::getEmail).collect(Collectors.toSet());
+        List<Long> missingIds = ids.stream().distinct().filter(id -> !foundIds.contains(id)).toList();
+        List<String> missingEmails = emails.stream().distinct().filter(email -> !foundEmails.contains(email)).toList();
 
-        return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getAge());
+        return new UserLookupResultDTO(new ArrayList<>(users.values()), missingIds, missingEmails);
     }
 }
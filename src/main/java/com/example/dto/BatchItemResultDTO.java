@@ -0,0 +1,45 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the result of one item of POST /api/users/batch.
+ *
+ * Fields:
+ * - index: position of the item in the request array
+ * - status: CREATED or FAILED
+ * - user: the created user, null on failure
+ * - error: failure reason, null on success
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    /**
+     * Zero-based position of the item in the request array.
+     */
+    private int index;
+
+    /**
+     * CREATED if the user was inserted, FAILED otherwise.
+     */
+    private String status;
+
+    /**
+     * The created user with its generated ID.
+     * Null when the item failed.
+     */
+    private UserDTO user;
+
+    /**
+     * Human-readable failure reason.
+     * Null when the item was created.
+     */
+    private String error;
+}
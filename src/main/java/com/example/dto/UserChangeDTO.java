@@ -0,0 +1,47 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for one event of the change feed.
+ * Sent as the data of the SSE events of GET /api/users/changes.
+ *
+ * Fields:
+ * - sequence: position in the feed, increasing by one per change
+ * - type: CREATED, UPDATED, PATCHED or DELETED
+ * - userId: ID of the changed user
+ * - user: the user as written, null for deletes and possibly for patches
+ * - changes: the patched fields, only for PATCHED
+ * - timestamp: when the change was committed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangeDTO {
+
+    private long sequence;
+
+    private String type;
+
+    private Long userId;
+
+    /**
+     * The whole user after the change. Its version is null when the update was
+     * unconditional, read the user to get the current version. Null after a PATCH
+     * of a user whose other fields were not known, see changes.
+     */
+    private UserDTO user;
+
+    /**
+     * For PATCHED only: the patched fields by name (name, email, age), plus the new
+     * version when it is known. Fields that are not listed were not changed.
+     */
+    private Map<String, Object> changes;
+
+    private Instant timestamp;
+}
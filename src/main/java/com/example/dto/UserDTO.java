@@ -1,5 +1,7 @@
 package com.example.dto;
 
+import com.example.entity.UserEntity;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,11 +19,15 @@ import lombok.NoArgsConstructor;
  * - toString()
  * - Constructors
  *
+ * Read queries project rows straight into this class
+ * (see UserRepository), so it also serves as the read model.
+ *
  * Fields:
  * - id: unique identifier (generated by database)
  * - name: user's full name
  * - email: unique email address
  * - age: user's age
+ * - version: row version, also sent as the ETag header (read-only)
  */
 @Data
 @NoArgsConstructor
@@ -52,4 +58,26 @@ public class UserDTO {
      * Must be a positive integer.
      */
     private Integer age;
+
+    /**
+     * Row version, incremented on every update.
+     * Ignored in request bodies: use the If-Match header instead.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public UserDTO(Long id, String name, String email, Integer age) {
+        this(id, name, email, age, null);
+    }
+
+    /**
+     * Copies the fields of an entity into a new DTO.
+     *
+     * @param user the entity to copy, must not be null
+     * @return a new DTO with the same field values
+     */
+    public static UserDTO from(UserEntity user) {
+
+        return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getVersion());
+    }
 }
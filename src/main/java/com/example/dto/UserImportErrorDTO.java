@@ -0,0 +1,28 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one rejected row of a bulk CSV import.
+ *
+ * Fields:
+ * - line: line number of the row in the file
+ * - error: reason the row was not imported
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportErrorDTO {
+
+    /**
+     * One-based line number on which the row starts in the file.
+     */
+    private long line;
+
+    /**
+     * Human-readable reason the row was not imported.
+     */
+    private String error;
+}
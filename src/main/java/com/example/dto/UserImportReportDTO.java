@@ -0,0 +1,59 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the report of a bulk CSV import.
+ * Returned by POST /api/users/import.
+ *
+ * Fields:
+ * - rowsRead: data rows read from the file
+ * - imported: users inserted
+ * - failed: rows that were not imported
+ * - resumedFromLine: line the import continued from, 0 if it started at the beginning
+ * - durationMs: wall-clock time of this run
+ * - errors: per-row failures of this run, capped at 1000
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportReportDTO {
+
+    /**
+     * Data rows read from the file, header excluded.
+     * Includes rows of chunks committed by earlier runs of a resumed import.
+     */
+    private long rowsRead;
+
+    /**
+     * Number of users inserted.
+     */
+    private long imported;
+
+    /**
+     * Number of rows rejected by validation, as duplicates in the file
+     * or because a user with the email already exists.
+     */
+    private long failed;
+
+    /**
+     * Line the import continued from after an earlier run stopped.
+     * 0 when the file was imported from the beginning.
+     */
+    private long resumedFromLine;
+
+    /**
+     * Wall-clock time of this run in milliseconds.
+     */
+    private long durationMs;
+
+    /**
+     * Failures of this run, capped at 1000 entries.
+     * The failed counter is always complete.
+     */
+    private List<UserImportErrorDTO> errors;
+}
@@ -0,0 +1,31 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for POST /api/users/lookup.
+ * Either list may be omitted.
+ *
+ * Fields:
+ * - ids: user IDs to look up
+ * - emails: email addresses to look up
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupRequestDTO {
+
+    /**
+     * User IDs to look up, at most 10000.
+     */
+    private List<Long> ids;
+
+    /**
+     * Email addresses to look up, at most 10000.
+     */
+    private List<String> emails;
+}
@@ -0,0 +1,37 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for the result of a batch user lookup.
+ *
+ * Fields:
+ * - users: found users in request order, each user at most once
+ * - missingIds: requested IDs that do not exist
+ * - missingEmails: requested emails that do not exist
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupResultDTO {
+
+    /**
+     * Found users, in the order they were requested.
+     * Users matched by ID come before users matched by email.
+     */
+    private List<UserDTO> users;
+
+    /**
+     * Requested IDs without a user, in request order.
+     */
+    private List<Long> missingIds;
+
+    /**
+     * Requested emails without a user, in request order.
+     */
+    private List<String> missingEmails;
+}
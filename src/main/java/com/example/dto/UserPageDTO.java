@@ -0,0 +1,32 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one keyset page of users.
+ * Returned by GET /api/users?limit=N[&after=ID].
+ *
+ * Fields:
+ * - users: users of this page, ordered by ID
+ * - next: cursor for the following page, null when this is the last page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO {
+
+    /**
+     * Users of this page, ordered by ID ascending.
+     */
+    private List<UserDTO> users;
+
+    /**
+     * ID to pass as the "after" parameter to fetch the next page.
+     * Null when there are no more users.
+     */
+    private Long next;
+}
@@ -0,0 +1,44 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for user statistics.
+ * Returned by GET /api/users/stats.
+ *
+ * Fields:
+ * - total: number of users
+ * - minAge, maxAge, meanAge: over all users, null if there are none
+ * - ageHistogram: users per age range
+ * - reconciledAt: when the figures were last recounted from the database
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatsDTO {
+
+    private long total;
+
+    private Integer minAge;
+
+    private Integer maxAge;
+
+    private Double meanAge;
+
+    /**
+     * Users per age range in ascending order: "0-9" to "90-99" and "100+",
+     * preceded by "&lt;0" when there are negative ages. Ranges without users are included.
+     */
+    private Map<String, Long> ageHistogram;
+
+    /**
+     * Writes of this instance are reflected immediately, writes of other
+     * instances only from the next recount on.
+     */
+    private Instant reconciledAt;
+}
@@ -0,0 +1,71 @@
+package com.example.entity;
+
+import com.example.config.ShardRoutingDataSource;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence-based ID generator that encodes the shard of the user in its ID.
+ *
+ * IDs are {@code shard << SHARD_SHIFT | n}, where n comes from the sequence of the
+ * shard the current thread writes to (see {@link ShardRoutingDataSource}), allocated
+ * in blocks exactly as by a plain pooled sequence generator. Each shard has its own
+ * block, a block of one shard's sequence is never used for another shard.
+ *
+ * On shard 0, and without sharding, IDs are the plain sequence values: IDs handed out
+ * before sharding was enabled belong to shard 0. With 32 shards at most, all IDs stay
+ * below 2^53 and are exact as JavaScript numbers.
+ */
+public class ShardedSequenceGenerator implements IdentifierGenerator {
+
+    public static final int SHARD_SHIFT = 48;
+    public static final int MAX_SHARDS = 32;
+
+    private final SequenceStyleGenerator[] shardGenerators = new SequenceStyleGenerator[MAX_SHARDS];
+
+    /**
+     * @return the shard number encoded in the ID
+     */
+    public static int shardOf(long id) {
+
+        return (int) (id >>> SHARD_SHIFT);
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        for (int shard = 0; shard < MAX_SHARDS; shard++) {
+            shardGenerators[shard] = new SequenceStyleGenerator();
+            shardGenerators[shard].configure(type, params, serviceRegistry);
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        // all shards use the same sequence, registering it more than once is a no-op
+        for (SequenceStyleGenerator generator : shardGenerators) {
+            generator.registerExportables(database);
+        }
+    }
+
+    @Override
+    public void initialize(SqlStringGenerationContext context) {
+        for (SequenceStyleGenerator generator : shardGenerators) {
+            generator.initialize(context);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        int shard = ShardRoutingDataSource.currentShard();
+        long id = ((Number) shardGenerators[shard].generate(session, object)).longValue();
+
+        return ((long) shard << SHARD_SHIFT) | id;
+    }
+}
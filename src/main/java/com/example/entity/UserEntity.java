@@ -1,18 +1,31 @@
 package com.example.entity;
 
-import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
 @Table(name = "users")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class UserEntity {
+    /**
+     * Allocated from users_id_seq in blocks of 50, with the shard encoded in the
+     * high bits (see ShardedSequenceGenerator).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_seq")
+    @GenericGenerator(name = "users_seq", type = ShardedSequenceGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "users_id_seq"),
+            @Parameter(name = "increment_size", value = "50")
+    })
     private Long id;
 
     @Column(nullable = false)
@@ -24,9 +37,23 @@ public class UserEntity {
     @Column(nullable = false)
     private Integer age;
 
+    /**
+     * Row version, starts at 0 and is incremented by every update.
+     * Exposed to clients as the ETag of the user resource.
+     * Bulk updates in UserRepository increment it explicitly.
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public UserEntity(String name, String email, Integer age) {
         this.name = name;
         this.email = email;
         this.age = age;
     }
+
+    public UserEntity(Long id, String name, String email, Integer age) {
+        this(name, email, age);
+        this.id = id;
+    }
 }
@@ -0,0 +1,166 @@
+package com.example.repository;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Global email to shard directory of the sharded users table, kept in the
+ * user_email_shards table of shard 0.
+ *
+ * The primary key on the email makes it the uniqueness check across shards: a new
+ * email is claimed by inserting its row before the user is written to its shard.
+ * Entries are not removed in the same transaction as the user, so an entry may point
+ * to a shard that does not have the user (failed create, email changed while the
+ * old email was unknown). Readers treat such entries as absent, see {@link UserShards}.
+ */
+public class EmailShardDirectory {
+    private static final Logger logger = LogManager.getLogger(EmailShardDirectory.class);
+
+    private static final String CREATE_TABLE = "create table if not exists user_email_shards ("
+            + "email varchar(255) not null primary key, shard integer not null, reserved_at timestamp not null)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmailShardDirectory(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Shard and claim time of one email.
+     */
+    public record Entry(int shard, Instant reservedAt) {
+    }
+
+    /**
+     * Creates the directory table on the first start with sharding, filled with the
+     * emails of the users already in shard 0 (all users of the unsharded database).
+     */
+    public void initialize() {
+        try {
+            jdbcTemplate.queryForObject("select count(*) from user_email_shards where 1 = 0", Long.class);
+
+            return;
+        } catch (BadSqlGrammarException e) {
+            // first start with sharding
+        }
+
+        jdbcTemplate.execute(CREATE_TABLE);
+        try {
+            int entries = jdbcTemplate.update("insert into user_email_shards (email, shard, reserved_at) "
+                    + "select email, 0, ? from users", now());
+            logger.info("Email shard directory created with the {} users of shard 0", entries);
+        } catch (BadSqlGrammarException e) {
+            logger.info("Email shard directory created, shard 0 has no users table yet");
+        }
+    }
+
+    public Optional<Entry> find(String email) {
+
+        return jdbcTemplate.query("select shard, reserved_at from user_email_shards where email = ?",
+                        (rs, row) -> new Entry(rs.getInt(1), rs.getTimestamp(2).toInstant()), email)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Looks up the shards of many emails with a single IN query.
+     *
+     * @param emails the emails, must not be null or empty
+     * @return shard by email, emails without an entry are left out
+     */
+    public Map<String, Integer> findShards(Collection<String> emails) {
+        Map<String, Integer> shards = new HashMap<>();
+        namedJdbcTemplate.query("select email, shard from user_email_shards where email in (:emails)",
+                new MapSqlParameterSource("emails", emails),
+                rs -> {
+                    shards.put(rs.getString(1), rs.getInt(2));
+                });
+
+        return shards;
+    }
+
+    /**
+     * @return true if the email was claimed for the shard, false if it already has an entry
+     */
+    public boolean insert(String email, int shard) {
+        try {
+            jdbcTemplate.update("insert into user_email_shards (email, shard, reserved_at) values (?, ?, ?)",
+                    email, shard, now());
+
+            return true;
+        } catch (DuplicateKeyException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Claims all emails in one transaction with a batched insert.
+     *
+     * @param shards shard by email, must not be empty
+     * @return true if all were claimed, false if any already had an entry, then none is claimed
+     */
+    public boolean insertAll(Map<String, Integer> shards) {
+        List<Object[]> rows = shards.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue(), now()})
+                .toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                    "insert into user_email_shards (email, shard, reserved_at) values (?, ?, ?)", rows));
+
+            return true;
+        } catch (DuplicateKeyException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Moves an entry to another shard, only if it is still exactly the given entry.
+     *
+     * @return true if the entry was moved, false if it changed or disappeared meanwhile
+     */
+    public boolean move(String email, Entry from, int toShard) {
+
+        return jdbcTemplate.update("update user_email_shards set shard = ?, reserved_at = ? "
+                        + "where email = ? and shard = ? and reserved_at = ?",
+                toShard, now(), email, from.shard(), Timestamp.from(from.reservedAt())) == 1;
+    }
+
+    /**
+     * Removes the entry of the email if it still points to the shard.
+     */
+    public void remove(String email, int shard) {
+        jdbcTemplate.update("delete from user_email_shards where email = ? and shard = ?", email, shard);
+    }
+
+    /**
+     * Claim times are compared for equality by {@link #move}, so they are stored
+     * with a precision every database keeps.
+     */
+    private static Timestamp now() {
+
+        return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.repository;
+
+import com.example.dto.UserDTO;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the users table over R2DBC, for the reactive API.
+ *
+ * Works on the same table as {@link UserRepository} and follows its conventions:
+ * every update increments the version, conditional writes compare it. New IDs come
+ * from the users_id_seq sequence in blocks of {@link #ID_ALLOCATION_SIZE}, the same
+ * pooled scheme Hibernate uses for UserEntity, so IDs handed out by both stacks
+ * never collide.
+ *
+ * Query results are streamed with the given fetch size: rows are read from the
+ * database as the subscriber requests them, so a slow consumer slows the query
+ * down instead of buffering the table in memory.
+ */
+public class ReactiveUserRepository implements AutoCloseable {
+
+    /**
+     * Must match the allocationSize of the users_seq generator on UserEntity.
+     */
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String SELECT = "select id, name, email, age, version from users";
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient client;
+    private final String nextIdBlockSql;
+    private final int fetchSize;
+    private final Object idLock = new Object();
+    private long nextId = 1;
+    private long lastId;
+
+    public ReactiveUserRepository(ConnectionFactory connectionFactory, int fetchSize) {
+        this.connectionFactory = connectionFactory;
+        this.client = DatabaseClient.create(connectionFactory);
+        this.nextIdBlockSql = "PostgreSQL".equals(connectionFactory.getMetadata().getName())
+                ? "select nextval('users_id_seq')"
+                : "select next value for users_id_seq";
+        this.fetchSize = fetchSize;
+    }
+
+    public Mono<UserDTO> findById(Long id) {
+
+        return client.sql(SELECT + " where id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    public Mono<UserDTO> findByEmail(String email) {
+
+        return client.sql(SELECT + " where email = :email")
+                .bind("email", email)
+                .map(ReactiveUserRepository::toDto)
+                .one();
+    }
+
+    /**
+     * Streams all users in ascending ID order.
+     */
+    public Flux<UserDTO> findAll() {
+
+        return client.sql(SELECT + " order by id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveUserRepository::toDto)
+                .all();
+    }
+
+    /**
+     * Keyset page: at most {@code limit} users with an ID greater than {@code afterId}.
+     */
+    public Flux<UserDTO> findPageAfter(long afterId, int limit) {
+
+        return client.sql(SELECT + " where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toDto)
+                .all();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+
+        return client.sql("select 1 from users where id = :id")
+                .bind("id", id)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    public Mono<Boolean> existsByEmail(String email) {
+
+        return client.sql("select 1 from users where email = :email")
+                .bind("email", email)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * Inserts a new user with a fresh ID and version 0.
+     *
+     * @return the stored user
+     */
+    public Mono<UserDTO> insert(String name, String email, Integer age) {
+
+        return nextId().flatMap(id -> client.sql("insert into users (id, name, email, age, version) "
+                        + "values (:id, :name, :email, :age, 0)")
+                .bind("id", id)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("age", age)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(new UserDTO(id, name, email, age, 0L)));
+    }
+
+    /**
+     * Overwrites the user and increments its version.
+     *
+     * @param expectedVersion the version the row must still have, null for an unconditional update
+     * @return number of updated rows, 0 if the user does not exist or has another version
+     */
+    public Mono<Long> update(Long id, Long expectedVersion, String name, String email, Integer age) {
+        String sql = "update users set name = :name, email = :email, age = :age, version = version + 1 where id = :id";
+        DatabaseClient.GenericExecuteSpec spec = client.sql(expectedVersion == null ? sql : sql + " and version = :version")
+                .bind("id", id)
+                .bind("name", name)
+                .bind("email", email)
+                .bind("age", age);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * @param expectedVersion the version the row must still have, null for an unconditional delete
+     * @return number of deleted rows, 0 if the user does not exist or has another version
+     */
+    public Mono<Long> delete(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+
+            return client.sql("delete from users where id = :id")
+                    .bind("id", id)
+                    .fetch()
+                    .rowsUpdated();
+        }
+
+        return client.sql("delete from users where id = :id and version = :version")
+                .bind("id", id)
+                .bind("version", expectedVersion)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Releases the connection pool, if the connection factory is one.
+     */
+    @Override
+    public void close() {
+        if (connectionFactory instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Takes the next ID of the current block, fetching a new block from the
+     * sequence when it is used up. The sequence value is the last ID of its block.
+     */
+    private Mono<Long> nextId() {
+        synchronized (idLock) {
+            if (nextId <= lastId) {
+
+                return Mono.just(nextId++);
+            }
+        }
+
+        return client.sql(nextIdBlockSql)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(blockEnd -> {
+                    synchronized (idLock) {
+                        // a concurrent refill may have happened, the rest of its block is skipped
+                        long blockStart = Math.max(1, blockEnd - ID_ALLOCATION_SIZE + 1);
+                        nextId = blockStart + 1;
+                        lastId = blockEnd;
+
+                        return blockStart;
+                    }
+                });
+    }
+
+    private static UserDTO toDto(Readable row) {
+
+        return new UserDTO(row.get("id", Long.class), row.get("name", String.class),
+                row.get("email", String.class), row.get("age", Integer.class), row.get("version", Long.class));
+    }
+}
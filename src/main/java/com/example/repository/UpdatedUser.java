@@ -0,0 +1,10 @@
+package com.example.repository;
+
+/**
+ * What a single-statement update reports about the row it changed.
+ *
+ * @param previousEmail the email the user had before the update
+ * @param version the version the update gave the user
+ */
+public record UpdatedUser(String previousEmail, long version) {
+}
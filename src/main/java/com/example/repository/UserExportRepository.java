@@ -0,0 +1,48 @@
+package com.example.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Plain JDBC access to the users table for bulk export.
+ *
+ * Bypasses JPA entirely: rows are handed to the callback straight from the
+ * ResultSet, without entities or DTOs. The fetch size makes the PostgreSQL
+ * driver read through a server-side cursor instead of buffering the whole
+ * result, which it only does inside a transaction (autocommit off).
+ */
+@Repository
+public class UserExportRepository {
+
+    /**
+     * Column order of the rows passed to {@link #forEachRow(RowCallbackHandler)}.
+     */
+    public static final String[] COLUMNS = {"id", "name", "email", "age", "version"};
+
+    private static final String SELECT_ALL = "select id, name, email, age, version from users order by id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserExportRepository(DataSource dataSource,
+                                @Value("${app.users.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Walks all users in ascending ID order. The ResultSet is positioned on the
+     * current row when the handler is called; columns are in {@link #COLUMNS} order.
+     *
+     * Must be called inside a (read-only) transaction to get a server-side cursor.
+     * An exception thrown by the handler stops the walk and closes the cursor.
+     *
+     * @param handler callback invoked once per row, must not be null
+     */
+    public void forEachRow(RowCallbackHandler handler) {
+        jdbcTemplate.query(SELECT_ALL, handler);
+    }
+}
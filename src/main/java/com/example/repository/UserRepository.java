@@ -2,8 +2,12 @@ package com.example.repository;
 
 import com.example.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,9 +25,23 @@ import java.util.Optional;
  * Custom methods for specific queries:
  * - findByEmail(String email): Find by email
  * - existsByEmail(String email): Check by email
+ * - findExistingEmails(Collection emails): Bulk duplicate check
+ * - countUsersByAge(): Number of users per age, for the statistics
+ *
+ * Custom fragment operations (see UserRepositoryCustom):
+ * - findDtoById(Long id), findDtoByEmail(String email): Single user as DTO
+ * - findVersionById(Long id): Version only, for conditional requests
+ * - updateUser(...): Single-statement update that returns the previous email and new version
+ * - patchUser(...): Same, of the given columns only
+ * - deleteUser(...): Single-statement delete that returns the email
+ * - findAllDtos(): All users as DTOs ordered by ID
+ * - findDtoPageAfter(Long afterId, int limit): Keyset page by ID as DTOs
+ * - findDtosByIdIn(Collection ids), findDtosByEmailIn(Collection emails): Bulk lookup as DTOs
+ * - forEachUser(Consumer action): Cursor-based walk over all users as DTOs
+ * - forEachEmail(Consumer action): Cursor-based walk over all emails
  */
 @Repository
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserRepositoryCustom {
 
     /**
      * Finds a user by email address.
@@ -41,4 +59,32 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
      * @return true if user exists with this email, false otherwise
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Returns those of the given email addresses that are already taken.
+     * Lets bulk operations check duplicates with a single query.
+     *
+     * @param emails the email addresses to check, must not be null or empty
+     * @return the subset of emails that exist in the database
+     */
+    @Query("select u.email from UserEntity u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Counts users per age in one aggregate query.
+     *
+     * @return one row per distinct age
+     */
+    @Query("select u.age as age, count(u) as users from UserEntity u group by u.age")
+    List<AgeCount> countUsersByAge();
+
+    /**
+     * Row of {@link #countUsersByAge()}.
+     */
+    interface AgeCount {
+
+        Integer getAge();
+
+        long getUsers();
+    }
 }
@@ -0,0 +1,139 @@
+package com.example.repository;
+
+import com.example.dto.UserDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Custom repository operations that cannot be expressed
+ * as Spring Data derived or annotated queries.
+ *
+ * The findDto* methods are read-only projections straight into UserDTO:
+ * no managed entities, no persistence context snapshots, no dirty checking.
+ * They run plain JPQL through the EntityManager because Spring Data 3.1
+ * re-parses annotated @Query strings on every call, which costs more
+ * than the entity work the projection saves.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Finds a user by ID as a DTO, in a read-only transaction.
+     *
+     * @param id the user ID, must not be null
+     * @return Optional containing the user if found, empty otherwise
+     */
+    Optional<UserDTO> findDtoById(Long id);
+
+    /**
+     * Finds a user by email as a DTO, in a read-only transaction.
+     *
+     * @param email the email address, must not be null
+     * @return Optional containing the user if found, empty otherwise
+     */
+    Optional<UserDTO> findDtoByEmail(String email);
+
+    /**
+     * Returns only the version of a user, for cheap conditional requests.
+     *
+     * @param id the user ID, must not be null
+     * @return Optional containing the version if the user exists, empty otherwise
+     */
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Overwrites name, email and age of a user and increments its version, in a single
+     * statement that also returns the previous email and the new version, without
+     * loading the entity first.
+     *
+     * @param id the ID of the user to update
+     * @param expectedVersion the version the row must still have, null for an unconditional update
+     * @param name the new name
+     * @param email the new email
+     * @param age the new age
+     * @return the previous email and new version, empty if the user does not exist or has another version
+     */
+    Optional<UpdatedUser> updateUser(Long id, Long expectedVersion, String name, String email, Integer age);
+
+    /**
+     * Updates only the given columns of a user and increments its version, in a
+     * single statement that also returns the previous email and the new version,
+     * without loading the entity first. A null argument leaves its column unchanged.
+     *
+     * @param id the ID of the user to update
+     * @param expectedVersion the version the row must still have, null for an unconditional update
+     * @param name the new name, or null
+     * @param email the new email, or null
+     * @param age the new age, or null
+     * @return the previous email and new version, empty if the user does not exist or has another version
+     * @throws IllegalArgumentException if no column is given
+     */
+    Optional<UpdatedUser> patchUser(Long id, Long expectedVersion, String name, String email, Integer age);
+
+    /**
+     * Deletes a user in a single statement that also returns its email,
+     * without loading the entity first.
+     *
+     * @param id the ID of the user to delete
+     * @param expectedVersion the version the row must still have, null for an unconditional delete
+     * @return the email of the deleted user, empty if the user does not exist or has another version
+     */
+    Optional<String> deleteUser(Long id, Long expectedVersion);
+
+    /**
+     * Finds all users as DTOs ordered by ID, in a read-only transaction.
+     *
+     * @return all users, empty list if there are none
+     */
+    List<UserDTO> findAllDtos();
+
+    /**
+     * Finds the next page of users whose ID is greater than the given cursor.
+     * Served by the primary key index, so the cost does not depend on
+     * how deep into the table the page is (unlike OFFSET pagination).
+     *
+     * @param afterId the last ID seen by the client, 0 for the first page
+     * @param limit maximum number of users to return
+     * @return users ordered by ID ascending
+     */
+    List<UserDTO> findDtoPageAfter(Long afterId, int limit);
+
+    /**
+     * Finds all users whose ID is in the given collection with a single IN query.
+     *
+     * @param ids the user IDs to look up, must not be null or empty
+     * @return the matching users in no particular order
+     */
+    List<UserDTO> findDtosByIdIn(Collection<Long> ids);
+
+    /**
+     * Finds all users whose email is in the given collection with a single IN query.
+     *
+     * @param emails the email addresses to look up, must not be null or empty
+     * @return the matching users in no particular order
+     */
+    List<UserDTO> findDtosByEmailIn(Collection<String> emails);
+
+    /**
+     * Walks all users in ascending ID order over a forward-only JDBC cursor.
+     * Rows are projected straight into DTOs, so nothing is added to the
+     * persistence context and memory use does not grow with the table size.
+     *
+     * Must be called inside a (read-only) transaction.
+     *
+     * @param action callback invoked once per user, must not be null
+     */
+    void forEachUser(Consumer<UserDTO> action);
+
+    /**
+     * Walks the emails of all users over a forward-only JDBC cursor,
+     * without creating entities.
+     *
+     * Must be called inside a (read-only) transaction.
+     *
+     * @param action callback invoked once per email, must not be null
+     */
+    void forEachEmail(Consumer<String> action);
+}
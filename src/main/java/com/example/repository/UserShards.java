@@ -0,0 +1,553 @@
+package com.example.repository;
+
+import com.example.config.RequestDeadline;
+import com.example.config.ShardRoutingDataSource;
+import com.example.entity.ShardedSequenceGenerator;
+import com.example.entity.UserEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Routes user data access to the shard holding the user, when sharding is configured
+ * (see ShardingConfig). Without sharding every method simply runs the given action,
+ * except that new users are still written outside the caller's transaction.
+ *
+ * - By ID: the shard is encoded in the ID ({@link ShardedSequenceGenerator}).
+ * - By email: one lookup in the {@link EmailShardDirectory}, then the owning shard only.
+ * - New users: placed by a hash of their email, so a retried create lands on the same
+ *   shard. The email is claimed in the directory first, which keeps it unique across shards.
+ * - All users and aggregates: fanned out to all shards in parallel, one read-only
+ *   transaction per shard. Since the shard is the high part of the ID, concatenating
+ *   the shards in shard order gives all users in ID order.
+ *
+ * Actions run outside any transaction of the caller, which could only use one shard.
+ * A write that spans shards (batch create, import chunk) is therefore atomic per shard.
+ */
+@Component
+public class UserShards implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserShards.class);
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final ShardRoutingDataSource routing;
+    private final EmailShardDirectory directory;
+    private final Duration claimTimeout;
+    private final TransactionTemplate outsideTransaction;
+    private final TransactionTemplate readTransaction;
+    private final ExecutorService fanOut;
+
+    public UserShards(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                      @Nullable ShardRoutingDataSource routing, @Nullable EmailShardDirectory directory,
+                      @Value("${app.datasource.sharding.fan-out-threads:16}") int fanOutThreads,
+                      @Value("${app.datasource.sharding.claim-timeout:1m}") Duration claimTimeout) {
+        this.userRepository = userRepository;
+        this.routing = routing;
+        this.directory = directory;
+        this.claimTimeout = claimTimeout;
+        if (transactionManager != null) {
+            this.outsideTransaction = new TransactionTemplate(transactionManager);
+            this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        } else {
+            this.outsideTransaction = null;
+        }
+        if (routing == null) {
+            this.readTransaction = null;
+            this.fanOut = null;
+
+            return;
+        }
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        AtomicInteger threads = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Routing for a single database, every method runs its action directly.
+     */
+    public static UserShards unsharded() {
+
+        return new UserShards(null, null, null, null, 0, Duration.ZERO);
+    }
+
+    public boolean isSharded() {
+
+        return routing != null;
+    }
+
+    public int shardCount() {
+
+        return routing == null ? 1 : routing.shardCount();
+    }
+
+    /**
+     * Runs the action on the shard of the user with this ID.
+     *
+     * @param absent result when the ID belongs to no configured shard
+     */
+    public <T> T onShardOf(Long id, Supplier<T> action, T absent) {
+        if (routing == null) {
+
+            return action.get();
+        }
+
+        int shard = ShardedSequenceGenerator.shardOf(id);
+
+        return shard < routing.shardCount() ? onShard(shard, action) : absent;
+    }
+
+    /**
+     * Runs the action on the shard the directory names for this email.
+     *
+     * @param absent result when the email is not in the directory
+     */
+    public <T> T onShardOfEmail(String email, Supplier<T> action, T absent) {
+        if (routing == null) {
+
+            return action.get();
+        }
+
+        Optional<EmailShardDirectory.Entry> entry = directory.find(email);
+
+        return entry.isPresent() ? onShard(entry.get().shard(), action) : absent;
+    }
+
+    /**
+     * Reads a page of users in ID order that may continue over several shards.
+     * Starts at the shard of the cursor and only moves on while the page is not full,
+     * so a page usually costs one query.
+     *
+     * @param page query for at most limit users with an ID greater than afterId
+     */
+    public <T> List<T> readPageAfter(long afterId, int limit, BiFunction<Long, Integer, List<T>> page) {
+        if (routing == null) {
+
+            return page.apply(afterId, limit);
+        }
+
+        List<T> users = new ArrayList<>(limit);
+        for (int shard = ShardedSequenceGenerator.shardOf(afterId); shard < routing.shardCount()
+                && users.size() < limit; shard++) {
+            int remaining = limit - users.size();
+            // IDs of later shards are all greater than the cursor
+            users.addAll(onShard(shard, () -> page.apply(afterId, remaining)));
+        }
+
+        return users;
+    }
+
+    /**
+     * Runs the read on every shard in parallel.
+     *
+     * @return the results in shard order
+     */
+    public <T> List<T> readOnEachShard(Supplier<T> read) {
+        if (routing == null) {
+
+            return List.of(read.get());
+        }
+
+        Map<Integer, Supplier<T>> reads = new LinkedHashMap<>();
+        for (int shard = 0; shard < routing.shardCount(); shard++) {
+            reads.put(shard, read);
+        }
+
+        return readInParallel(reads);
+    }
+
+    /**
+     * Runs the read for each shard with the keys of that shard, in parallel.
+     *
+     * @param keysByShard keys grouped by {@link #groupIdsByShard} or {@link #groupEmailsByShard}
+     * @return the results of all shards, in shard order
+     */
+    public <K, T> List<T> readByShard(Map<Integer, List<K>> keysByShard, Function<List<K>, List<T>> read) {
+        if (routing == null) {
+
+            return keysByShard.isEmpty() ? List.of() : read.apply(keysByShard.get(0));
+        }
+
+        Map<Integer, Supplier<List<T>>> reads = new LinkedHashMap<>();
+        keysByShard.forEach((shard, keys) -> reads.put(shard, () -> read.apply(keys)));
+
+        return readInParallel(reads).stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Runs the action once per shard, one after the other in shard (and so ID) order,
+     * each in its own read-only transaction. For streaming reads whose callback must
+     * not be called concurrently.
+     */
+    public void forEachShard(Runnable action) {
+        if (routing == null) {
+            action.run();
+
+            return;
+        }
+
+        for (int shard = 0; shard < routing.shardCount(); shard++) {
+            ShardRoutingDataSource.onShard(shard, () -> readTransaction.execute(status -> {
+                action.run();
+
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * @return the IDs by shard, IDs of no configured shard are left out
+     */
+    public Map<Integer, List<Long>> groupIdsByShard(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+
+            return Map.of();
+        }
+
+        if (routing == null) {
+
+            return Map.of(0, List.copyOf(ids));
+        }
+
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long id : ids) {
+            int shard = ShardedSequenceGenerator.shardOf(id);
+            if (shard < routing.shardCount()) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+
+        return byShard;
+    }
+
+    /**
+     * @return the emails by shard, emails not in the directory are left out
+     */
+    public Map<Integer, List<String>> groupEmailsByShard(Collection<String> emails) {
+        if (emails.isEmpty()) {
+
+            return Map.of();
+        }
+
+        if (routing == null) {
+
+            return Map.of(0, List.copyOf(emails));
+        }
+
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        directory.findShards(emails)
+                .forEach((email, shard) -> byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(email));
+
+        return byShard;
+    }
+
+    /**
+     * Claims the email of a new user in the directory, for the shard the user will be created on.
+     *
+     * @return false if another user has the email
+     */
+    public boolean claimEmail(String email) {
+        if (routing == null) {
+
+            return true;
+        }
+
+        return claim(email, shardForNewUser(email));
+    }
+
+    /**
+     * Claims a new email of an existing user in the directory.
+     *
+     * @return false if another user has the email
+     */
+    public boolean claimEmail(String email, Long userId) {
+        if (routing == null) {
+
+            return true;
+        }
+
+        return claim(email, ShardedSequenceGenerator.shardOf(userId));
+    }
+
+    /**
+     * Claims the emails of new users with one batched insert, and one by one
+     * if some of them are taken.
+     *
+     * @return the emails that are taken by other users
+     */
+    public Set<String> claimEmails(Collection<String> emails) {
+        if (routing == null || emails.isEmpty()) {
+
+            return Set.of();
+        }
+
+        Map<String, Integer> shards = new LinkedHashMap<>();
+        emails.forEach(email -> shards.put(email, shardForNewUser(email)));
+        if (directory.insertAll(shards)) {
+
+            return Set.of();
+        }
+
+        Set<String> taken = new HashSet<>();
+        shards.forEach((email, shard) -> {
+            if (!claim(email, shard)) {
+                taken.add(email);
+            }
+        });
+
+        return taken;
+    }
+
+    /**
+     * Frees an email the user no longer has.
+     */
+    public void releaseEmail(String email, Long userId) {
+        if (routing != null) {
+            directory.remove(email, ShardedSequenceGenerator.shardOf(userId));
+        }
+    }
+
+    /**
+     * Runs the write of a new user on the shard chosen by its email.
+     */
+    public <T> T onShardForNewUser(String email, Supplier<T> write) {
+        if (routing == null) {
+
+            return write.get();
+        }
+
+        return onShard(shardForNewUser(email), write);
+    }
+
+    /**
+     * Users of one shard whose write failed, see {@link #writeByShardForNewUsers}.
+     */
+    public record FailedShardWrite(int shard, List<UserEntity> users, RuntimeException cause) {
+    }
+
+    /**
+     * Runs the write of new users once per shard chosen by their emails, with the users
+     * of that shard. Each shard commits on its own, so a failing shard does not stop the
+     * others: its users are reported and their email claims released.
+     *
+     * A write that fails on a unique violation is checked exactly against its shard: the
+     * emails found there were taken behind the caller's duplicate check (a stale email
+     * index, a concurrent create). They go to takenEmails and the other users of the shard
+     * are written once more.
+     *
+     * Without sharding the write runs once the same way, outside the caller's transaction,
+     * and any other failure is thrown as before.
+     *
+     * @param findExisting exact check which of the given emails exist
+     * @param takenEmails receives the emails found to exist, their users are not written
+     * @return the failed shard writes, empty if all users but the taken ones were written
+     */
+    public List<FailedShardWrite> writeByShardForNewUsers(List<UserEntity> users, Consumer<List<UserEntity>> write,
+                                                          Function<List<String>, List<String>> findExisting,
+                                                          Set<String> takenEmails) {
+        Map<Integer, List<UserEntity>> byShard = new TreeMap<>();
+        users.forEach(user -> byShard.computeIfAbsent(routing == null ? 0 : shardForNewUser(user.getEmail()),
+                key -> new ArrayList<>()).add(user));
+        List<FailedShardWrite> failures = new ArrayList<>();
+        byShard.forEach((shard, shardUsers) -> {
+            List<UserEntity> written = shardUsers;
+            RuntimeException failure = writeShard(shard, written, write);
+            if (failure instanceof DataIntegrityViolationException) {
+                Set<String> taken = findExistingOnShard(shard, written, findExisting);
+                if (!taken.isEmpty()) {
+                    // the claims of the taken emails now name the shard that has them, so they stay
+                    takenEmails.addAll(taken);
+                    written = written.stream().filter(user -> !taken.contains(user.getEmail())).toList();
+                    // the rolled back insert left generated IDs and versions behind
+                    written.forEach(user -> {
+                        user.setId(null);
+                        user.setVersion(null);
+                    });
+                    failure = writeShard(shard, written, write);
+                }
+            }
+            if (failure != null) {
+                if (routing == null) {
+                    throw failure;
+                }
+                written.forEach(user -> directory.remove(user.getEmail(), shard));
+                failures.add(new FailedShardWrite(shard, written, failure));
+            }
+        });
+
+        return failures;
+    }
+
+    @Override
+    public void close() {
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    /**
+     * Runs the action with connections from the shard, outside the caller's transaction.
+     */
+    private <T> T onShard(int shard, Supplier<T> action) {
+
+        return ShardRoutingDataSource.onShard(shard, () -> outsideTransaction.execute(status -> action.get()));
+    }
+
+    /**
+     * @return the failure of the write, null if it committed
+     */
+    private RuntimeException writeShard(int shard, List<UserEntity> users, Consumer<List<UserEntity>> write) {
+        if (users.isEmpty()) {
+
+            return null;
+        }
+
+        try {
+            if (routing == null && outsideTransaction == null) {
+                write.accept(users);
+            } else if (routing == null) {
+                outsideTransaction.executeWithoutResult(status -> write.accept(users));
+            } else {
+                onShard(shard, () -> {
+                    write.accept(users);
+
+                    return null;
+                });
+            }
+
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("Writing {} new users to shard {} failed", users.size(), shard, e);
+
+            return e;
+        }
+    }
+
+    private Set<String> findExistingOnShard(int shard, List<UserEntity> users,
+                                            Function<List<String>, List<String>> findExisting) {
+        List<String> emails = users.stream().map(UserEntity::getEmail).toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, emails.size()));
+            existing.addAll(routing == null
+                    ? findExisting.apply(chunk)
+                    : onShard(shard, () -> findExisting.apply(chunk)));
+        }
+
+        return existing;
+    }
+
+    private int shardForNewUser(String email) {
+        int hash = email.hashCode() * 0x9E3779B9;
+
+        return Math.floorMod(hash ^ (hash >>> 16), routing.shardCount());
+    }
+
+    /**
+     * Claims the email for the shard. An existing entry of another shard is only taken
+     * over if that shard has no user with the email and the entry is older than the
+     * claim timeout, which no create takes: it is left over from a failed write.
+     * Every successful claim leaves the entry with a fresh claim time.
+     */
+    private boolean claim(String email, int shard) {
+        if (directory.insert(email, shard)) {
+
+            return true;
+        }
+
+        Optional<EmailShardDirectory.Entry> entry = directory.find(email);
+        if (entry.isEmpty()) {
+            // released meanwhile
+
+            return directory.insert(email, shard);
+        }
+
+        EmailShardDirectory.Entry owner = entry.get();
+        if (owner.shard() == shard) {
+            // a user on the same shard is caught by the unique constraint of the shard, but the
+            // entry may be stale: refresh it, so no takeover runs while this write is uncommitted
+
+            return directory.move(email, owner, shard) || claim(email, shard);
+        }
+
+        boolean ownerExists = owner.shard() < routing.shardCount();
+        if (ownerExists && (owner.reservedAt().isAfter(Instant.now().minus(claimTimeout))
+                || onShard(owner.shard(), () -> userRepository.existsByEmail(email)))) {
+
+            return false;
+        }
+
+        logger.info("Taking over stale directory entry of {} from shard {}", email, owner.shard());
+
+        return directory.move(email, owner, shard);
+    }
+
+    private <T> List<T> readInParallel(Map<Integer, Supplier<T>> reads) {
+        long deadlineMillis = RequestDeadline.isSet() ? RequestDeadline.remainingMillis() : -1;
+        List<Future<T>> futures = new ArrayList<>(reads.size());
+        reads.forEach((shard, read) -> futures.add(fanOut.submit(() -> {
+            if (deadlineMillis >= 0) {
+                RequestDeadline.start(deadlineMillis);
+            }
+            try {
+
+                return ShardRoutingDataSource.onShard(shard, () -> readTransaction.execute(status -> read.get()));
+            } finally {
+                RequestDeadline.clear();
+            }
+        })));
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading from the shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.service;
+
+import com.example.entity.UserEntity;
+
+/**
+ * Outcome of creating one user as part of a bulk create.
+ *
+ * @param index position of the user in the request
+ * @param user  the created user, null if creation failed
+ * @param error reason of the failure, null if the user was created
+ */
+public record BatchCreateResult(int index, UserEntity user, String error) {
+
+    public static BatchCreateResult created(int index, UserEntity user) {
+        return new BatchCreateResult(index, user, null);
+    }
+
+    public static BatchCreateResult failed(int index, String error) {
+        return new BatchCreateResult(index, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
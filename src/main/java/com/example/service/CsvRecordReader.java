@@ -0,0 +1,191 @@
+package com.example.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forward-only RFC 4180 CSV reader over a file channel.
+ *
+ * Reads the file in fixed-size chunks into one reusable buffer and splits records
+ * at the byte level, so memory use does not depend on the file size. Splitting on
+ * bytes is safe for UTF-8 input because the delimiter, quote and line break bytes
+ * never occur inside a multi-byte character.
+ *
+ * Tracks the byte offset after the last returned record, so a reader can be
+ * reopened at that offset to continue where a previous one stopped.
+ */
+public final class CsvRecordReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private int position;
+    private int limit;
+    private long bufferOffset;
+
+    private byte[] field = new byte[256];
+    private int fieldLength;
+
+    private long offset;
+    private long line;
+    private long recordLine;
+
+    /**
+     * Opens the file and positions the reader at the given record boundary.
+     *
+     * @param file the CSV file, must not be null
+     * @param startOffset byte offset of the first record to read, 0 for the start of the file
+     * @param startLine number of lines before startOffset, 0 for the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public CsvRecordReader(Path file, long startOffset, long startLine) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(startOffset);
+        this.bufferOffset = startOffset;
+        this.offset = startOffset;
+        this.line = startLine;
+    }
+
+    /**
+     * Reads the next record, skipping blank lines.
+     *
+     * @return the fields of the record, null at the end of the file
+     * @throws IOException if reading fails or the file ends inside a quoted field
+     */
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        fieldLength = 0;
+        boolean quoted = false;
+        boolean quoteSeen = false;
+        boolean fieldQuoted = false;
+        recordLine = line + 1;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (fields.isEmpty() && fieldLength == 0 && !fieldQuoted) {
+
+                    return null;
+                }
+                fields.add(takeField());
+
+                return fields;
+            }
+
+            byte b = buffer[position++];
+            if (quoted) {
+                if (b == '"') {
+                    quoted = false;
+                    quoteSeen = true;
+                } else {
+                    if (b == '\n') {
+                        line++;
+                    }
+                    append(b);
+                }
+                continue;
+            }
+
+            if (b == '"') {
+                if (quoteSeen) {
+                    // "" inside a quoted field is an escaped quote
+                    append(b);
+                    quoted = true;
+                    quoteSeen = false;
+                } else if (fieldLength == 0 && !fieldQuoted) {
+                    quoted = true;
+                    fieldQuoted = true;
+                } else {
+                    append(b);
+                }
+                continue;
+            }
+            quoteSeen = false;
+
+            if (b == ',') {
+                fields.add(takeField());
+                fieldQuoted = false;
+            } else if (b == '\n') {
+                line++;
+                offset = bufferOffset + position;
+                if (fields.isEmpty() && fieldLength == 0 && !fieldQuoted) {
+                    recordLine = line + 1;
+                    continue;
+                }
+                fields.add(takeField());
+
+                return fields;
+            } else if (b != '\r') {
+                append(b);
+            }
+        }
+    }
+
+    /**
+     * @return byte offset right after the last returned record
+     */
+    public long offset() {
+
+        return offset;
+    }
+
+    /**
+     * @return number of lines up to {@link #offset()}
+     */
+    public long lines() {
+
+        return line;
+    }
+
+    /**
+     * @return one-based line number on which the last returned record starts
+     */
+    public long recordLine() {
+
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        wrapped.clear();
+        int read = channel.read(wrapped);
+        position = 0;
+        limit = Math.max(read, 0);
+        if (read <= 0) {
+            offset = bufferOffset;
+        }
+
+        return read > 0;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private String takeField() {
+        String value = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        fieldLength = 0;
+
+        return value;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory membership index of all user emails.
+ *
+ * Stores a 64-bit hash per email in an open-addressing table with linear probing,
+ * 11 to 22 bytes per email. {@link #mightContain(String)} returning false is a definite
+ * "absent" that lets callers skip the duplicate-check query. Returning true only means
+ * "possibly present" and the caller must ask the database.
+ *
+ * Until {@link #markReady()} is called after the initial load, every email is
+ * reported as possibly present. Stale entries only cost an extra query. A wrong
+ * "absent" (hash collision on removal, insert by another service instance) is
+ * still caught by the database unique constraint on email, which stays authoritative.
+ */
+@Component
+public class EmailIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+
+    private final boolean enabled;
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean ready;
+
+    public EmailIndex(@Value("${app.users.email-index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether the email may belong to an existing user.
+     *
+     * @param email the email address to check, must not be null
+     * @return false if the email is definitely not taken, true if it may be
+     */
+    public boolean mightContain(String email) {
+        if (!ready) {
+
+            return true;
+        }
+
+        long hash = hash(email);
+        synchronized (this) {
+
+            return indexOf(hash) >= 0;
+        }
+    }
+
+    /**
+     * Records that the email is taken.
+     *
+     * @param email the email address, must not be null
+     */
+    public synchronized void add(String email) {
+        if (!enabled) {
+
+            return;
+        }
+
+        long hash = hash(email);
+        if (indexOf(hash) >= 0) {
+
+            return;
+        }
+
+        if (size + 1 > slots.length * MAX_LOAD_FACTOR) {
+            resize();
+        }
+        insert(slots, hash);
+        size++;
+    }
+
+    /**
+     * Records that the email is no longer taken.
+     *
+     * @param email the email address, must not be null
+     */
+    public synchronized void remove(String email) {
+        int index = indexOf(hash(email));
+        if (index < 0) {
+
+            return;
+        }
+
+        // backward-shift deletion keeps probe sequences intact without tombstones
+        int mask = slots.length - 1;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[next] == 0) {
+                break;
+            }
+            int home = home(slots[next], mask);
+            boolean inRange = index <= next ? (index < home && home <= next) : (index < home || home <= next);
+            if (!inRange) {
+                slots[index] = slots[next];
+                index = next;
+            }
+        }
+        slots[index] = 0;
+        size--;
+    }
+
+    /**
+     * Switches the index from "everything may exist" to answering from its contents.
+     * Called once the initial load from the database has completed.
+     */
+    public void markReady() {
+        ready = enabled;
+    }
+
+    public boolean isReady() {
+
+        return ready;
+    }
+
+    public synchronized int size() {
+
+        return size;
+    }
+
+    private int indexOf(long hash) {
+        int mask = slots.length - 1;
+        for (int i = home(hash, mask); slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] == hash) {
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void resize() {
+        long[] resized = new long[slots.length * 2];
+        for (long hash : slots) {
+            if (hash != 0) {
+                insert(resized, hash);
+            }
+        }
+        slots = resized;
+    }
+
+    private static void insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int i = home(hash, mask);
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+    }
+
+    private static int home(long hash, int mask) {
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars followed by the MurmurHash3 finalizer.
+     * Zero marks an empty slot, so it is remapped.
+     */
+    static long hash(String email) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            h ^= email.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.service;
+
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Fills the {@link EmailIndex} from the database once the application has started.
+ */
+@Component
+public class EmailIndexLoader {
+    private static final Logger logger = LogManager.getLogger(EmailIndexLoader.class);
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final EmailIndex emailIndex;
+
+    public EmailIndexLoader(UserRepository userRepository, UserShards userShards, EmailIndex emailIndex) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.emailIndex = emailIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.currentTimeMillis();
+        userShards.forEachShard(() -> userRepository.forEachEmail(emailIndex::add));
+        emailIndex.markReady();
+        logger.info("Email index loaded with {} entries in {} ms",
+                emailIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.service;
+
+/**
+ * Output formats of the bulk user export.
+ */
+public enum ExportFormat {
+
+    /**
+     * RFC 4180 CSV with a header line, CRLF line endings.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * One JSON object per line (newline-delimited JSON).
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    ExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    public String getFileExtension() {
+
+        return fileExtension;
+    }
+
+    /**
+     * Resolves a format from a request parameter such as "csv" or "ndjson".
+     *
+     * @param value the format name, case-insensitive
+     * @return the matching format
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    public static ExportFormat fromParam(String value) {
+        for (ExportFormat format : values()) {
+            if (format.fileExtension.equalsIgnoreCase(value)) {
+
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported export format: " + value);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request with the same Idempotency-Key is still running and did not
+ * finish within the wait time. Mapped to 409 Conflict, clients are expected to retry later.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+    public IdempotencyKeyInUseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an Idempotency-Key is sent again with a different request body.
+ * Mapped to 422 Unprocessable Entity, the client has to use a new key.
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
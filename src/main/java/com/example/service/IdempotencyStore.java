@@ -0,0 +1,194 @@
+package com.example.service;
+
+import com.example.config.RequestDeadline;
+import com.example.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of user creations by Idempotency-Key, so a retried request
+ * gets the original result instead of creating the user again.
+ *
+ * A completed creation is kept for a TTL, the oldest one is dropped when the store
+ * is full. A request arriving while the original is still running waits for it
+ * (at most wait-timeout, and never beyond the request deadline) and shares its result.
+ * Failures are not remembered: waiting duplicates get the same exception, a later
+ * retry runs again.
+ *
+ * Every key is bound to the request it was first used with. Reusing it for a
+ * different request is rejected. Keys are per instance and not scoped per client,
+ * clients are expected to use random keys (UUIDs).
+ */
+@Component
+public class IdempotencyStore {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long waitTimeoutMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Completed> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+
+    @Autowired
+    public IdempotencyStore(@Value("${app.users.idempotency.max-keys:10000}") int maxSize,
+                            @Value("${app.users.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${app.users.idempotency.wait-timeout:5s}") Duration waitTimeout) {
+        this(maxSize, ttl, waitTimeout, Clock.systemUTC());
+    }
+
+    IdempotencyStore(int maxSize, Duration ttl, Duration waitTimeout, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Idempotency store size must be positive");
+        }
+
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.clock = clock;
+        this.completed = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+
+                return size() > IdempotencyStore.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Runs the creation once per key.
+     *
+     * @param key the Idempotency-Key header value
+     * @param request what identifies the request, compared with equals() on every reuse of the key
+     * @param create creates the user, only called if the key is new
+     * @return the created user, and whether it is the stored result of an earlier request
+     * @throws IllegalArgumentException if the key is blank or too long
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     * @throws IdempotencyKeyInUseException if the original request did not finish in time
+     */
+    public Outcome execute(String key, Object request, Supplier<UserDTO> create) {
+        validateKey(key);
+
+        InFlight flight = new InFlight(request, new CompletableFuture<>());
+        InFlight existing;
+        synchronized (this) {
+            Completed done = completed.get(key);
+            if (done != null && done.expiresAt() > clock.millis()) {
+                checkSameRequest(key, done.request(), request);
+                replays.increment();
+
+                return new Outcome(UserCache.copy(done.user()), true);
+            }
+            completed.remove(key);
+            existing = inFlight.putIfAbsent(key, flight);
+        }
+
+        if (existing != null) {
+            checkSameRequest(key, existing.request(), request);
+            replays.increment();
+
+            return new Outcome(UserCache.copy(await(key, existing.result())), true);
+        }
+
+        executions.increment();
+        try {
+            UserDTO user = create.get();
+            synchronized (this) {
+                completed.put(key, new Completed(request, UserCache.copy(user), clock.millis() + ttlMillis));
+                inFlight.remove(key);
+            }
+            flight.result().complete(user);
+
+            return new Outcome(user, false);
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized Stats stats() {
+
+        return new Stats(executions.sum(), replays.sum(), completed.size());
+    }
+
+    private UserDTO await(String key, CompletableFuture<UserDTO> result) {
+        long waitMillis = Math.min(waitTimeoutMillis, RequestDeadline.remainingMillis());
+        try {
+
+            return result.get(Math.max(0, waitMillis), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInUseException("Request with Idempotency-Key " + key + " is still in progress");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Idempotent call failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent call", e);
+        }
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Idempotency-Key cannot be empty");
+        }
+
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key cannot be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private static void checkSameRequest(String key, Object original, Object request) {
+        if (!Objects.equals(original, request)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key " + key + " was already used for a different request");
+        }
+    }
+
+    /**
+     * @param user     the created user
+     * @param replayed true if the user was created by an earlier request with the same key
+     */
+    public record Outcome(UserDTO user, boolean replayed) {
+    }
+
+    private record Completed(Object request, UserDTO user, long expiresAt) {
+    }
+
+    private record InFlight(Object request, CompletableFuture<UserDTO> result) {
+    }
+
+    /**
+     * Point-in-time counters.
+     *
+     * @param executions requests that ran the creation
+     * @param replays requests answered with the result of an earlier or concurrent request
+     * @param size completed results currently stored
+     */
+    public record Stats(long executions, long replays, int size) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link UserService} for the reactive API.
+ *
+ * Applies the same validation rules as UserService and fails with the same
+ * exceptions, delivered as error signals instead of being thrown. Results are
+ * UserDTO projections; list results are streamed and honour backpressure.
+ */
+public interface ReactiveUserService {
+
+    /**
+     * Creates a new user.
+     *
+     * @param userEntity the user to create, must not be null
+     * @return the created user with generated ID and version 0
+     * @throws IllegalArgumentException (as error signal) if user data is invalid or email already exists
+     */
+    Mono<UserDTO> createUser(UserEntity userEntity);
+
+    /**
+     * @param id the unique identifier of the user, must be positive
+     * @return the user, empty if not found
+     * @throws IllegalArgumentException (as error signal) if ID is null or invalid
+     */
+    Mono<UserDTO> getUserById(Long id);
+
+    /**
+     * @param email the email address to search for, must not be null or empty
+     * @return the user, empty if not found
+     * @throws IllegalArgumentException (as error signal) if email is null or empty
+     */
+    Mono<UserDTO> getUserByEmail(String email);
+
+    /**
+     * Streams all users in ID order, reading from the database as fast as the subscriber consumes.
+     *
+     * @return all users, empty if no users exist
+     */
+    Flux<UserDTO> getAllUsers();
+
+    /**
+     * Retrieves one keyset page of users ordered by ID.
+     *
+     * @param afterId the last ID of the previous page, null or 0 for the first page
+     * @param limit maximum number of users to return, between 1 and 1000
+     * @return users ordered by ID, empty if there are no more users
+     * @throws IllegalArgumentException (as error signal) if afterId is negative or limit is out of range
+     */
+    Flux<UserDTO> getUsersAfter(Long afterId, int limit);
+
+    /**
+     * Overwrites an existing user, conditionally if the entity carries a version.
+     *
+     * @param userEntity the user with updated data, must not be null
+     * @return the updated user, with the new version if the expected one was given
+     * @throws IllegalArgumentException (as error signal) if the ID is invalid or the user does not exist
+     * @throws VersionMismatchException (as error signal) if the user exists with a different version
+     */
+    Mono<UserDTO> updateUser(UserEntity userEntity);
+
+    /**
+     * Deletes a user, only while it still has the expected version if one is given.
+     *
+     * @param id the unique identifier of the user to delete, must be positive
+     * @param expectedVersion the version the caller last saw, null to delete unconditionally
+     * @throws IllegalArgumentException (as error signal) if the ID is invalid or the user does not exist
+     * @throws VersionMismatchException (as error signal) if the user exists with a different version
+     */
+    Mono<Void> deleteUser(Long id, Long expectedVersion);
+}
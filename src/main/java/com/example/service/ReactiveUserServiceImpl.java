@@ -0,0 +1,183 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.repository.ReactiveUserRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Reactive user service over R2DBC.
+ *
+ * Validates with the rules of {@link UserServiceImpl}. Shares the in-process user
+ * cache, email index, recent-write log, statistics and change feed with the MVC stack: writes evict
+ * the cache and feed the index, so neither stack serves a user the other one has changed.
+ * Single-user reads use the cache when it already holds the user, but do not fill
+ * it; everything else goes to the database, which R2DBC does without blocking.
+ */
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    private static final Logger logger = LogManager.getLogger(ReactiveUserServiceImpl.class);
+
+    private final ReactiveUserRepository userRepository;
+    private final UserCache userCache;
+    private final EmailIndex emailIndex;
+    private final RecentWrites recentWrites;
+    private final UserStats userStats;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ReactiveUserServiceImpl(ReactiveUserRepository userRepository, UserCache userCache,
+                                   EmailIndex emailIndex, RecentWrites recentWrites, UserStats userStats,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.emailIndex = emailIndex;
+        this.recentWrites = recentWrites;
+        this.userStats = userStats;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Mono<UserDTO> createUser(UserEntity userEntity) {
+
+        return Mono.defer(() -> {
+            UserServiceImpl.validateNewUser(userEntity);
+            String email = userEntity.getEmail();
+            Mono<Boolean> taken = emailIndex.mightContain(email) ? userRepository.existsByEmail(email) : Mono.just(false);
+
+            return taken.flatMap(exists -> exists
+                            ? Mono.error(alreadyExists(email))
+                            : userRepository.insert(userEntity.getName(), email, userEntity.getAge()))
+                    .onErrorMap(DataIntegrityViolationException.class, e -> alreadyExists(email))
+                    .doOnNext(created -> {
+                        userCache.evict(created.getId(), email);
+                        emailIndex.add(email);
+                        recentWrites.record(created.getId(), email);
+                        userStats.recordCreated(created.getAge());
+                        eventPublisher.publishEvent(UserChangedEvent.created(created));
+                        logger.info("User created successfully with ID: {}", created.getId());
+                    });
+        });
+    }
+
+    @Override
+    public Mono<UserDTO> getUserById(Long id) {
+
+        return Mono.defer(() -> {
+            UserServiceImpl.validateId(id);
+
+            return Mono.justOrEmpty(userCache.peek(id)).switchIfEmpty(userRepository.findById(id));
+        });
+    }
+
+    @Override
+    public Mono<UserDTO> getUserByEmail(String email) {
+
+        return Mono.defer(() -> {
+            UserServiceImpl.validateEmail(email);
+
+            return userRepository.findByEmail(email);
+        });
+    }
+
+    @Override
+    public Flux<UserDTO> getAllUsers() {
+
+        return userRepository.findAll();
+    }
+
+    @Override
+    public Flux<UserDTO> getUsersAfter(Long afterId, int limit) {
+
+        return Flux.defer(() -> {
+            UserServiceImpl.validatePage(afterId, limit);
+
+            return userRepository.findPageAfter(afterId == null ? 0L : afterId, limit);
+        });
+    }
+
+    @Override
+    public Mono<UserDTO> updateUser(UserEntity userEntity) {
+
+        return Mono.defer(() -> {
+            UserServiceImpl.validateUpdate(userEntity);
+            Long id = userEntity.getId();
+            Long expectedVersion = userEntity.getVersion();
+            Optional<UserDTO> previous = userCache.peek(id);
+            String previousEmail = previous.map(UserDTO::getEmail).orElse(null);
+
+            return userRepository.update(id, expectedVersion, userEntity.getName(), userEntity.getEmail(), userEntity.getAge())
+                    .flatMap(updated -> updated == 0 ? notFoundOrStale(id, expectedVersion) : Mono.just(updated))
+                    .map(updated -> {
+                        // the new version is only known when the old one was
+                        UserDTO user = new UserDTO(id, userEntity.getName(), userEntity.getEmail(), userEntity.getAge(),
+                                expectedVersion == null ? null : expectedVersion + 1);
+                        userCache.evict(id, user.getEmail());
+                        emailIndex.add(user.getEmail());
+                        recentWrites.record(id, user.getEmail());
+                        if (previousEmail != null && !previousEmail.equals(user.getEmail())) {
+                            recentWrites.record(null, previousEmail);
+                            emailIndex.remove(previousEmail);
+                        }
+                        previous.ifPresentOrElse(old -> userStats.recordUpdated(old.getAge(), user.getAge()),
+                                userStats::markStale);
+                        eventPublisher.publishEvent(UserChangedEvent.updated(user));
+                        logger.info("User updated successfully with ID: {}", id);
+
+                        return user;
+                    });
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteUser(Long id, Long expectedVersion) {
+
+        return Mono.defer(() -> {
+            UserServiceImpl.validateId(id);
+            Optional<UserDTO> previous = userCache.peek(id);
+            String previousEmail = previous.map(UserDTO::getEmail).orElse(null);
+
+            return userRepository.delete(id, expectedVersion)
+                    .flatMap(deleted -> deleted == 0 ? notFoundOrStale(id, expectedVersion) : Mono.just(deleted))
+                    .doOnNext(deleted -> {
+                        userCache.evictById(id);
+                        if (previousEmail != null) {
+                            emailIndex.remove(previousEmail);
+                        }
+                        recentWrites.record(id, previousEmail);
+                        previous.ifPresentOrElse(old -> userStats.recordDeleted(old.getAge()),
+                                userStats::recordDeletedUnknownAge);
+                        eventPublisher.publishEvent(UserChangedEvent.deleted(id));
+                        logger.info("User deleted successfully with ID: {}", id);
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Explains why a conditional write matched no row, as in {@link UserServiceImpl}.
+     */
+    private <T> Mono<T> notFoundOrStale(Long id, Long expectedVersion) {
+        Mono<Boolean> exists = expectedVersion == null ? Mono.just(false) : userRepository.existsById(id);
+
+        return exists.flatMap(stale -> {
+            if (stale) {
+                userCache.evictById(id);
+
+                return Mono.error(new VersionMismatchException("User with ID " + id + " is no longer at version " + expectedVersion));
+            }
+
+            return Mono.error(new UserNotFoundException(id));
+        });
+    }
+
+    private static IllegalArgumentException alreadyExists(String email) {
+
+        return new IllegalArgumentException("User with email " + email + " already exists");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the users written by this instance during the last replication lag
+ * window (app.datasource.routing.max-lag), so reads of them can go to the primary
+ * and see the write even if the replica has not applied it yet.
+ *
+ * Keyed by ID and by email. Only active when a replica is configured, otherwise
+ * every user is reported as not recently written and nothing is recorded.
+ */
+@Component
+public class RecentWrites {
+
+    private static final int PRUNE_INTERVAL = 1024;
+
+    private final boolean enabled;
+    private final long maxLagNanos;
+    private final Map<Object, Long> deadlines = new ConcurrentHashMap<>();
+    private int writesSincePrune;
+
+    public RecentWrites(@Value("${app.datasource.replica.jdbc-url:}") String replicaUrl,
+                        @Value("${app.datasource.routing.max-lag:5s}") Duration maxLag) {
+        this.enabled = !replicaUrl.isBlank();
+        this.maxLagNanos = maxLag.toNanos();
+    }
+
+    /**
+     * Records a write of the user.
+     *
+     * @param id the user ID, may be null if unknown
+     * @param email the user email, may be null if unknown
+     */
+    public void record(Long id, String email) {
+        if (!enabled) {
+
+            return;
+        }
+
+        long deadline = System.nanoTime() + maxLagNanos;
+        if (id != null) {
+            deadlines.put(id, deadline);
+        }
+        if (email != null) {
+            deadlines.put(email, deadline);
+        }
+        pruneOccasionally();
+    }
+
+    /**
+     * @param id the user ID, must not be null
+     * @return true if the user was written within the lag window
+     */
+    public boolean isRecent(Long id) {
+
+        return isRecentKey(id);
+    }
+
+    /**
+     * @param email the email address, must not be null
+     * @return true if a user with this email was written within the lag window
+     */
+    public boolean isRecentEmail(String email) {
+
+        return isRecentKey(email);
+    }
+
+    private boolean isRecentKey(Object key) {
+        if (!enabled) {
+
+            return false;
+        }
+
+        Long deadline = deadlines.get(key);
+        if (deadline == null) {
+
+            return false;
+        }
+
+        if (System.nanoTime() - deadline >= 0) {
+            deadlines.remove(key, deadline);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    private void pruneOccasionally() {
+        synchronized (this) {
+            if (++writesSincePrune < PRUNE_INTERVAL) {
+
+                return;
+            }
+            writesSincePrune = 0;
+        }
+
+        long now = System.nanoTime();
+        deadlines.entrySet().removeIf(entry -> now - entry.getValue() >= 0);
+    }
+}
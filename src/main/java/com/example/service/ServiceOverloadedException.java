@@ -0,0 +1,16 @@
+package com.example.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request is shed because the service is at capacity.
+ * Mapped to 503 Service Unavailable, clients are expected to retry later.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution.
+ *
+ * The first caller for a key (the leader) runs the loader, callers arriving
+ * while it is in flight (followers) wait for and share its result or exception.
+ * A follower that waits longer than the timeout stops waiting and runs the
+ * loader itself, so a stuck leader cannot stall everyone behind it. Likewise,
+ * a follower runs the loader itself when the leader failed for a reason of its
+ * own, such as its request deadline running out.
+ *
+ * @param <K> key type
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+    private final UnaryOperator<V> followerCopy;
+    private final Predicate<Throwable> leaderSpecific;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * @param timeout how long a follower waits for the leader
+     * @param followerCopy applied to the shared result before it is handed to a follower,
+     *                     so that followers do not share a mutable instance
+     */
+    public SingleFlight(Duration timeout, UnaryOperator<V> followerCopy) {
+        this(timeout, followerCopy, failure -> false);
+    }
+
+    /**
+     * @param leaderSpecific matches failures of the leader that need not happen to a
+     *                       follower, followers then run the loader themselves
+     */
+    public SingleFlight(Duration timeout, UnaryOperator<V> followerCopy, Predicate<Throwable> leaderSpecific) {
+        this.timeoutNanos = timeout.toNanos();
+        this.followerCopy = followerCopy;
+        this.leaderSpecific = leaderSpecific;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+
+            return await(existing, loader);
+        }
+
+        executions.increment();
+        try {
+            V result = loader.get();
+            flight.complete(result);
+
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public Stats stats() {
+
+        return new Stats(executions.sum(), collapsed.sum(), timeouts.sum(), retries.sum());
+    }
+
+    private V await(CompletableFuture<V> flight, Supplier<V> loader) {
+        collapsed.increment();
+        try {
+
+            return followerCopy.apply(flight.get(timeoutNanos, TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            timeouts.increment();
+
+            return loader.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (leaderSpecific.test(cause)) {
+                retries.increment();
+
+                return loader.get();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Coalesced call failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for coalesced call", e);
+        }
+    }
+
+    /**
+     * Point-in-time counters.
+     *
+     * @param executions loader runs started by leaders
+     * @param collapsed calls that joined an in-flight execution instead of running their own
+     * @param timeouts followers that gave up waiting and ran the loader themselves
+     * @param retries followers that ran the loader themselves after a leader-specific failure
+     */
+    public record Stats(long executions, long collapsed, long timeouts, long retries) {
+    }
+}
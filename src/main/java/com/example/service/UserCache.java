@@ -0,0 +1,373 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read-through cache of users.
+ *
+ * Every cached user is indexed by both ID and email, so a single entry
+ * answers both lookups. Entries expire after a TTL and the least recently
+ * used entry is evicted when the cache is full. Lookups that found nothing
+ * are remembered for a shorter negative TTL.
+ *
+ * Users are spread by ID over lock stripes, each with its own LRU order and
+ * an equal share of the capacity, so concurrent lookups of different users
+ * rarely wait for each other. The email index maps to IDs in a
+ * ConcurrentHashMap and is read without a lock. Eviction picks the least
+ * recently used user of the stripe, which approximates a global LRU.
+ *
+ * Stale fills are prevented with a generation counter: a value loaded
+ * while any invalidation happened is returned to the caller but not cached.
+ *
+ * Stored and returned users are copies, so callers may mutate them freely.
+ */
+@Component
+public class UserCache {
+
+    private static final int MAX_STRIPES = 16;
+    // stripes are only added while each holds at least this many users
+    private static final int MIN_STRIPE_SIZE = 16;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Clock clock;
+
+    private final Stripe[] stripes;
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public UserCache(@Value("${app.users.cache.max-size:10000}") int maxSize,
+                     @Value("${app.users.cache.ttl:10m}") Duration ttl,
+                     @Value("${app.users.cache.negative-ttl:5s}") Duration negativeTtl) {
+        this(maxSize, ttl, negativeTtl, Clock.systemUTC());
+    }
+
+    UserCache(int maxSize, Duration ttl, Duration negativeTtl, Clock clock) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative");
+        }
+
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.clock = clock;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maxSize / MIN_STRIPE_SIZE)));
+        int stripeNegativeSize = Math.max(1, maxSize / 10 / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // shares add up to exactly maxSize
+            stripes[i] = new Stripe(maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0), stripeNegativeSize);
+        }
+    }
+
+    /**
+     * Returns the user with the given ID, loading and caching it on a miss.
+     *
+     * @param id the user ID, must not be null
+     * @param loader loads the user from the database on a miss
+     * @return the cached or loaded user
+     */
+    public Optional<UserDTO> getById(Long id, Function<Long, Optional<UserDTO>> loader) {
+        long observedGeneration;
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            long now = clock.millis();
+            Entry entry = stripe.users.get(id);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.increment();
+
+                    return Optional.of(copy(entry.user()));
+                }
+                removeEntry(stripe, entry);
+            } else if (isMissing(stripe.missingIds, id, now)) {
+                hits.increment();
+
+                return Optional.empty();
+            }
+            misses.increment();
+            observedGeneration = generation.get();
+        }
+
+        Optional<UserDTO> loaded = loader.apply(id);
+        store(loaded, observedGeneration, stripe,
+                missing -> missing.missingIds.put(id, clock.millis() + negativeTtlMillis));
+
+        return loaded;
+    }
+
+    /**
+     * Returns the user with the given email, loading and caching it on a miss.
+     *
+     * @param email the email address, must not be null
+     * @param loader loads the user from the database on a miss
+     * @return the cached or loaded user
+     */
+    public Optional<UserDTO> getByEmail(String email, Function<String, Optional<UserDTO>> loader) {
+        long observedGeneration;
+        Long id = idsByEmail.get(email);
+        if (id != null) {
+            Stripe stripe = stripeOf(id);
+            synchronized (stripe) {
+                // the get also refreshes the LRU position
+                Entry entry = stripe.users.get(id);
+                if (entry != null && entry.user().getEmail().equals(email)) {
+                    if (entry.expiresAt() > clock.millis()) {
+                        hits.increment();
+
+                        return Optional.of(copy(entry.user()));
+                    }
+                    removeEntry(stripe, entry);
+                }
+            }
+        }
+        Stripe stripe = stripeOf(email);
+        synchronized (stripe) {
+            if (isMissing(stripe.missingEmails, email, clock.millis())) {
+                hits.increment();
+
+                return Optional.empty();
+            }
+            misses.increment();
+            observedGeneration = generation.get();
+        }
+
+        Optional<UserDTO> loaded = loader.apply(email);
+        store(loaded, observedGeneration, stripe,
+                missing -> missing.missingEmails.put(email, clock.millis() + negativeTtlMillis));
+
+        return loaded;
+    }
+
+    /**
+     * Caches a freshly written user, replacing anything cached under its ID or email.
+     *
+     * @param user the user as stored in the database, must have an ID
+     */
+    public void put(UserDTO user) {
+        evict(user.getId(), user.getEmail());
+        if (maxSize > 0) {
+            Stripe stripe = stripeOf(user.getId());
+            synchronized (stripe) {
+                insert(stripe, copy(user));
+            }
+        }
+    }
+
+    /**
+     * Drops everything cached under the given ID or email,
+     * including negative entries.
+     *
+     * @param id the user ID
+     * @param email the user's current email
+     */
+    public void evict(Long id, String email) {
+        evictById(id);
+        Long aliasedId = idsByEmail.get(email);
+        if (aliasedId != null && !aliasedId.equals(id)) {
+            evictById(aliasedId);
+        }
+        Stripe stripe = stripeOf(email);
+        synchronized (stripe) {
+            stripe.missingEmails.remove(email);
+        }
+    }
+
+    /**
+     * Drops the user cached under the given ID together with its email alias.
+     *
+     * @param id the user ID
+     */
+    public void evictById(Long id) {
+        generation.incrementAndGet();
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            Entry entry = stripe.users.get(id);
+            if (entry != null) {
+                removeEntry(stripe, entry);
+            }
+            stripe.missingIds.remove(id);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached user without loading or touching counters.
+     *
+     * @param id the user ID
+     * @return the cached user, empty if not cached or expired
+     */
+    public Optional<UserDTO> peek(Long id) {
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            Entry entry = stripe.users.get(id);
+            if (entry == null || entry.expiresAt() <= clock.millis()) {
+
+                return Optional.empty();
+            }
+
+            return Optional.of(copy(entry.user()));
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.users.clear();
+                stripe.missingIds.clear();
+                stripe.missingEmails.clear();
+            }
+        }
+        idsByEmail.clear();
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.users.size();
+            }
+        }
+
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private void store(Optional<UserDTO> loaded, long observedGeneration, Stripe missingStripe,
+                       Consumer<Stripe> markMissing) {
+        if (maxSize == 0) {
+
+            return;
+        }
+
+        Stripe stripe = loaded.map(user -> stripeOf(user.getId())).orElse(missingStripe);
+        synchronized (stripe) {
+            // checked under the lock an invalidation of this key has to take as well
+            if (observedGeneration != generation.get()) {
+
+                return;
+            }
+            if (loaded.isPresent()) {
+                insert(stripe, copy(loaded.get()));
+            } else {
+                markMissing.accept(stripe);
+            }
+        }
+    }
+
+    private void insert(Stripe stripe, UserDTO user) {
+        Entry entry = new Entry(user, clock.millis() + ttlMillis);
+        Entry replaced = stripe.users.put(user.getId(), entry);
+        if (replaced != null && !replaced.user().getEmail().equals(user.getEmail())) {
+            idsByEmail.remove(replaced.user().getEmail(), user.getId());
+        }
+        idsByEmail.put(user.getEmail(), user.getId());
+    }
+
+    private void removeEntry(Stripe stripe, Entry entry) {
+        stripe.users.remove(entry.user().getId());
+        idsByEmail.remove(entry.user().getEmail(), entry.user().getId());
+        evictions.increment();
+    }
+
+    private Stripe stripeOf(Object key) {
+        int hash = Objects.hashCode(key);
+
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static <K> boolean isMissing(Map<K, Long> missing, K key, long now) {
+        Long expiresAt = missing.get(key);
+        if (expiresAt == null) {
+
+            return false;
+        }
+        if (expiresAt > now) {
+
+            return true;
+        }
+        missing.remove(key);
+
+        return false;
+    }
+
+    private static <K> LinkedHashMap<K, Long> boundedMissingMap(int maxNegativeSize) {
+
+        return new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+
+                return size() > maxNegativeSize;
+            }
+        };
+    }
+
+    static UserDTO copy(UserDTO user) {
+
+        return new UserDTO(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getVersion());
+    }
+
+    private record Entry(UserDTO user, long expiresAt) {
+    }
+
+    /**
+     * One lock stripe: users in LRU order and negative entries in insertion order,
+     * each bounded to the stripe's share. Guarded by its own monitor.
+     */
+    private final class Stripe {
+
+        private final LinkedHashMap<Long, Entry> users;
+        private final LinkedHashMap<Long, Long> missingIds;
+        private final LinkedHashMap<String, Long> missingEmails;
+
+        Stripe(int maxSize, int maxNegativeSize) {
+            this.users = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                    if (size() <= maxSize) {
+
+                        return false;
+                    }
+                    UserDTO user = eldest.getValue().user();
+                    idsByEmail.remove(user.getEmail(), user.getId());
+                    evictions.increment();
+
+                    return true;
+                }
+            };
+            this.missingIds = boundedMissingMap(maxNegativeSize);
+            this.missingEmails = boundedMissingMap(maxNegativeSize);
+        }
+    }
+
+    /**
+     * Point-in-time cache counters.
+     *
+     * @param hits lookups answered from the cache, including negative entries
+     * @param misses lookups that went to the database
+     * @param evictions entries dropped because of size, expiry or invalidation
+     * @param size number of users currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+}
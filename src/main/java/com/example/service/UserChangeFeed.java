@@ -0,0 +1,381 @@
+package com.example.service;
+
+import com.example.dto.UserChangeDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change feed of this instance's user writes, streamed to subscribers as Server-Sent Events.
+ *
+ * Committed changes ({@link UserChangedEvent}) are numbered and kept in a ring buffer of
+ * the last buffer-size changes. Every subscriber has a cursor into the ring and is
+ * drained by a small pool of sender threads, so publishing never waits for a client:
+ * it only writes one slot and wakes up idle subscribers.
+ *
+ * Event IDs are "feed-sequence", where feed is random per application start.
+ * A client reconnecting with Last-Event-ID continues right after that event if it is
+ * still buffered. Otherwise (too old, other instance, restarted) it first receives a
+ * "resync" event: it should reload the users it needs and then keeps following the feed.
+ * A subscriber falling behind by more than the ring holds gets "resync" and is dropped;
+ * since that event carries the current ID, an automatic reconnect resumes from there.
+ *
+ * Sends are blocking servlet writes. A subscriber whose send blocks for longer than
+ * send-timeout is dropped, and the pool gets an extra sender thread until the blocked
+ * write returns (at the latest when the connection times out), so stalled clients
+ * never hold back the others.
+ *
+ * Only writes made through this instance appear in its feed.
+ */
+@Component
+public class UserChangeFeed implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserChangeFeed.class);
+
+    static final String RESYNC_EVENT = "resync";
+
+    private static final int MAX_EVENTS_PER_READ = 256;
+    private static final long NOT_SENDING = 0;
+    private static final long STALLED = Long.MIN_VALUE;
+
+    private final UserChangeDTO[] ring;
+    private final String feedId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService watchdog;
+    private int stalledSenders;
+    private long lastSequence;
+
+    public UserChangeFeed(@Value("${app.users.changes.buffer-size:10000}") int bufferSize,
+                          @Value("${app.users.changes.max-subscribers:1000}") int maxSubscribers,
+                          @Value("${app.users.changes.sender-threads:4}") int senderThreads,
+                          @Value("${app.users.changes.timeout:30m}") Duration timeout,
+                          @Value("${app.users.changes.send-timeout:5s}") Duration sendTimeout) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Change feed buffer size must be positive");
+        }
+
+        this.ring = new UserChangeDTO[bufferSize];
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senderThreads = senderThreads;
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "user-change-sender-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-change-watchdog");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        long checkMillis = Math.max(10, sendTimeout.toMillis() / 4);
+        watchdog.scheduleWithFixedDelay(this::dropStalledSubscribers, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a change once its transaction has committed, or right away outside a transaction.
+     * A rolled back write never shows up in the feed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            ring[slot(sequence)] = new UserChangeDTO(sequence, event.type().name(), event.userId(), event.user(),
+                    event.changes(), Instant.now());
+        }
+        subscribers.forEach(Subscriber::wakeUp);
+    }
+
+    /**
+     * Opens a stream of changes.
+     *
+     * @param lastEventId the Last-Event-ID sent by a reconnecting client, null for a new client
+     * @throws ServiceOverloadedException if the maximum number of subscribers is reached
+     */
+    public SseEmitter subscribe(String lastEventId) {
+
+        return subscribe(lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(String lastEventId, SseEmitter emitter) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceOverloadedException("Too many change feed subscribers");
+        }
+
+        Subscriber subscriber;
+        synchronized (this) {
+            long resumeAfter = parseSequence(lastEventId);
+            boolean buffered = resumeAfter >= 0 && resumeAfter <= lastSequence && isBuffered(resumeAfter);
+            subscriber = new Subscriber(emitter, buffered ? resumeAfter : lastSequence, lastEventId != null && !buffered);
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscriber.wakeUp();
+
+        return emitter;
+    }
+
+    public int subscriberCount() {
+
+        return subscribers.size();
+    }
+
+    /**
+     * Ends all streams, clients reconnect to another instance or after the restart.
+     */
+    @Override
+    public void close() {
+        subscribers.forEach(subscriber -> {
+            subscriber.close();
+            subscriber.emitter.complete();
+        });
+        watchdog.shutdown();
+        sender.shutdown();
+    }
+
+    /**
+     * Drops subscribers whose current send has blocked for longer than the send timeout,
+     * and replaces their sender threads for as long as the sends stay blocked.
+     */
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.markStalled(now)) {
+                logger.info("Dropping change feed subscriber whose send blocked for more than {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                // the emitter is locked by the blocked send, its sender completes it once the write returns
+                subscriber.close();
+                resizeSenders(1);
+            }
+        }
+    }
+
+    private synchronized void resizeSenders(int stalledDelta) {
+        stalledSenders += stalledDelta;
+        int threads = senderThreads + stalledSenders;
+        // the core size may not exceed the maximum size at any time
+        if (threads > sender.getMaximumPoolSize()) {
+            sender.setMaximumPoolSize(threads);
+            sender.setCorePoolSize(threads);
+        } else {
+            sender.setCorePoolSize(threads);
+            sender.setMaximumPoolSize(threads);
+        }
+    }
+
+    /**
+     * Copies the buffered changes following {@code sequence}.
+     *
+     * @return at most {@link #MAX_EVENTS_PER_READ} changes, null if some were already overwritten
+     */
+    private synchronized List<UserChangeDTO> eventsAfter(long sequence) {
+        if (!isBuffered(sequence)) {
+
+            return null;
+        }
+
+        long last = Math.min(lastSequence, sequence + MAX_EVENTS_PER_READ);
+        List<UserChangeDTO> events = new ArrayList<>((int) (last - sequence));
+        for (long next = sequence + 1; next <= last; next++) {
+            events.add(ring[slot(next)]);
+        }
+
+        return events;
+    }
+
+    private synchronized long lastSequence() {
+
+        return lastSequence;
+    }
+
+    /**
+     * Whether every change after {@code sequence} is still in the ring.
+     */
+    private boolean isBuffered(long sequence) {
+
+        return lastSequence - sequence <= ring.length;
+    }
+
+    private int slot(long sequence) {
+
+        return (int) (sequence % ring.length);
+    }
+
+    private String eventId(long sequence) {
+
+        return feedId + "-" + sequence;
+    }
+
+    /**
+     * @return the sequence of an event ID of this feed, -1 if the ID is missing or from another feed
+     */
+    private long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(feedId + "-")) {
+
+            return -1;
+        }
+
+        try {
+
+            return Long.parseLong(lastEventId.substring(feedId.length() + 1));
+        } catch (NumberFormatException e) {
+
+            return -1;
+        }
+    }
+
+    /**
+     * One open stream. Drained by at most one sender thread at a time.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // start of the current send, or NOT_SENDING, or STALLED once the watchdog took it over
+        private final AtomicLong sendState = new AtomicLong(NOT_SENDING);
+        private volatile boolean closed;
+        private boolean timedOut;
+        private long cursor;
+        private boolean resyncFirst;
+
+        Subscriber(SseEmitter emitter, long cursor, boolean resyncFirst) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.resyncFirst = resyncFirst;
+        }
+
+        void wakeUp() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+
+                return;
+            }
+
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        /**
+         * @return true if the current send has blocked for longer than the send timeout,
+         *         then the send is marked as stalled and the sender returns its thread later
+         */
+        boolean markStalled(long now) {
+            long sendStarted = sendState.get();
+
+            return sendStarted != NOT_SENDING && sendStarted != STALLED && now - sendStarted > sendTimeoutNanos
+                    && sendState.compareAndSet(sendStarted, STALLED);
+        }
+
+        private void drain() {
+            try {
+                if (resyncFirst) {
+                    // the cursor was set to the newest change when the client subscribed
+                    sendResync();
+                    resyncFirst = false;
+                }
+                List<UserChangeDTO> events = eventsAfter(cursor);
+                while (!closed && events != null && !events.isEmpty()) {
+                    for (UserChangeDTO event : events) {
+                        if (closed) {
+                            break;
+                        }
+                        send(SseEmitter.event()
+                                .id(eventId(event.getSequence()))
+                                .name(event.getType().toLowerCase(Locale.ROOT))
+                                .data(event, MediaType.APPLICATION_JSON));
+                        cursor = event.getSequence();
+                    }
+                    events = eventsAfter(cursor);
+                }
+                if (!closed && events == null) {
+                    // overtaken by the ring: the missed changes are gone
+                    logger.info("Dropping change feed subscriber that fell more than {} changes behind", ring.length);
+                    cursor = lastSequence();
+                    sendResync();
+                    close();
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client gone or stream already completed
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+            }
+
+            if (timedOut) {
+                emitter.completeWithError(new IOException("Change feed send timed out"));
+
+                return;
+            }
+
+            // a change published after the last read but before the flag was reset found it still set
+            if (!closed && cursor < lastSequence()) {
+                wakeUp();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            long start = System.nanoTime();
+            sendState.set(start == NOT_SENDING || start == STALLED ? start + 1 : start);
+            try {
+                emitter.send(event);
+            } finally {
+                if (sendState.getAndSet(NOT_SENDING) == STALLED) {
+                    // dropped by the watchdog while the send blocked, this thread is back in the pool
+                    timedOut = true;
+                    resizeSenders(-1);
+                }
+            }
+        }
+
+        private void sendResync() throws IOException {
+            send(SseEmitter.event()
+                    .id(eventId(cursor))
+                    .name(RESYNC_EVENT)
+                    .data(Map.of("sequence", cursor), MediaType.APPLICATION_JSON));
+        }
+    }
+}
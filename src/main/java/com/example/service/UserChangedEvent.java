@@ -0,0 +1,45 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+
+import java.util.Map;
+
+/**
+ * Application event published by the write paths for every created, updated, patched
+ * or deleted user. Delivered to listeners after the surrounding transaction commits,
+ * see {@link UserChangeFeed}.
+ *
+ * @param type    kind of change
+ * @param userId  ID of the changed user
+ * @param user    the whole user as written, null for deletes and for patches of a user
+ *                whose other fields are not known. Its version is null when the write
+ *                was unconditional and the new version is not known.
+ * @param changes for patches only: the patched fields by name, plus "version" when the
+ *                new version is known; null otherwise
+ */
+public record UserChangedEvent(Type type, Long userId, UserDTO user, Map<String, Object> changes) {
+
+    public enum Type {
+        CREATED, UPDATED, PATCHED, DELETED
+    }
+
+    public static UserChangedEvent created(UserDTO user) {
+
+        return new UserChangedEvent(Type.CREATED, user.getId(), user, null);
+    }
+
+    public static UserChangedEvent updated(UserDTO user) {
+
+        return new UserChangedEvent(Type.UPDATED, user.getId(), user, null);
+    }
+
+    public static UserChangedEvent patched(Long userId, UserDTO user, Map<String, Object> changes) {
+
+        return new UserChangedEvent(Type.PATCHED, userId, user, Map.copyOf(changes));
+    }
+
+    public static UserChangedEvent deleted(Long userId) {
+
+        return new UserChangedEvent(Type.DELETED, userId, null, null);
+    }
+}
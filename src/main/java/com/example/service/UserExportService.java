@@ -0,0 +1,179 @@
+package com.example.service;
+
+import com.example.repository.UserExportRepository;
+import com.example.repository.UserShards;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams the whole users table to an output stream as CSV or NDJSON.
+ *
+ * Each row goes from the JDBC cursor straight into a buffered writer, so memory
+ * use does not depend on the table size. The export runs in one read-only
+ * transaction and therefore sees a consistent snapshot of the table. With sharding,
+ * the shards are exported one after the other, each from its own snapshot.
+ */
+@Service
+public class UserExportService {
+    private static final Logger logger = LogManager.getLogger(UserExportService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UserExportRepository exportRepository;
+    private final UserShards userShards;
+    private final JsonFactory jsonFactory;
+
+    public UserExportService(UserExportRepository exportRepository, UserShards userShards, ObjectMapper objectMapper) {
+        this.exportRepository = exportRepository;
+        this.userShards = userShards;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Writes all users to the stream in ascending ID order.
+     * The stream is flushed but not closed.
+     *
+     * If writing fails (typically because the client disconnected), the
+     * database cursor is closed and the exception is rethrown.
+     *
+     * @param format the output format, must not be null
+     * @param out the stream to write to, must not be null
+     * @return number of exported users
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long[] rows = new long[1];
+
+        try {
+            writer.start();
+            userShards.forEachShard(() -> exportRepository.forEachRow(rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            logger.info("User export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        logger.info("Exported {} users as {} in {} ms", rows[0], format, System.currentTimeMillis() - start);
+
+        return rows[0];
+    }
+
+    private interface RowWriter {
+
+        void start() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer out;
+
+        CsvRowWriter(OutputStream stream) {
+            this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void start() throws IOException {
+            out.write(String.join(",", UserExportRepository.COLUMNS));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.write(Long.toString(rs.getLong(1)));
+            out.write(',');
+            writeField(rs.getString(2));
+            out.write(',');
+            writeField(rs.getString(3));
+            out.write(',');
+            out.write(Integer.toString(rs.getInt(4)));
+            out.write(',');
+            out.write(Long.toString(rs.getLong(5)));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                out.write(value);
+
+                return;
+            }
+
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final OutputStream stream;
+        private JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void start() throws IOException {
+            generator = jsonFactory.createGenerator(stream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null); // lines are separated by writeRaw below
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong(1));
+            generator.writeStringField("name", rs.getString(2));
+            generator.writeStringField("email", rs.getString(3));
+            generator.writeNumberField("age", rs.getInt(4));
+            generator.writeNumberField("version", rs.getLong(5));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk CSV import.
+ *
+ * Counters cover the whole file, including chunks committed by earlier runs
+ * when the import was resumed. Row errors are only collected for the current run
+ * and capped, {@code failed} is always the full count.
+ *
+ * @param rowsRead        data rows read from the file
+ * @param imported        users inserted
+ * @param failed          rows rejected by validation, deduplication or existing emails
+ * @param resumedFromLine line the import continued from, 0 if it started at the beginning
+ * @param errors          per-row failures of this run, at most {@link #MAX_REPORTED_ERRORS}
+ * @param durationMs      wall-clock time of this run
+ */
+public record UserImportReport(long rowsRead, long imported, long failed, long resumedFromLine,
+                               List<RowError> errors, long durationMs) {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * @param line  one-based line number of the record in the file
+     * @param error reason the row was not imported
+     */
+    public record RowError(long line, String error) {
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulk import of users from a CSV file with a name, email and age column
+ * (other columns, such as the id and version of an export, are ignored).
+ *
+ * A parser thread reads the file with {@link CsvRecordReader}, validates the rows
+ * with the same rules as {@link UserServiceImpl#createUser(UserEntity)} and hands
+ * chunks of rows to the calling thread through a small bounded queue. The calling
+ * thread inserts each chunk with batched inserts in its own transaction, so parsing
+ * and writing overlap and memory use is bounded by the queue capacity.
+ *
+ * Emails are deduplicated within a chunk in memory and across chunks by the existing
+ * email check, since earlier chunks are already committed by then.
+ *
+ * Imports of a file from the import directory are resumable: after every committed
+ * chunk the file position is written to a checkpoint file next to the CSV, and a
+ * later import of the same file continues from there. A crash between commit and
+ * checkpoint re-reads at most one chunk, whose rows are then reported as existing.
+ */
+@Service
+public class UserImportService {
+    private static final Logger logger = LogManager.getLogger(UserImportService.class);
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int MAX_CHUNK_SIZE = 10_000;
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserCache userCache;
+    private final EmailIndex emailIndex;
+    private final UserStats userStats;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Path importDir;
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+
+    public UserImportService(UserRepository userRepository, UserShards userShards, UserCache userCache,
+                             EmailIndex emailIndex,
+                             UserStats userStats, ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.users.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.users.import.dir:}") String importDir) {
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Import chunk size must be between 1 and " + MAX_CHUNK_SIZE);
+        }
+
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userCache = userCache;
+        this.emailIndex = emailIndex;
+        this.userStats = userStats;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.importDir = importDir.isBlank() ? null : Paths.get(importDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Imports a file from the configured import directory (app.users.import.dir).
+     * Resumes from the last committed chunk if an earlier import of the file stopped.
+     *
+     * @param path the file path, relative to the import directory
+     * @return the import report
+     * @throws IllegalArgumentException if path imports are disabled, the path is outside
+     *                                  the import directory, the file does not exist or has
+     *                                  changed since the checkpoint, or the header is invalid
+     * @throws IOException if reading the file fails
+     */
+    public UserImportReport importFromPath(String path) throws IOException {
+        if (importDir == null) {
+            throw new IllegalArgumentException("Importing from a server path is disabled, set app.users.import.dir");
+        }
+
+        Path file = importDir.resolve(path).normalize();
+        if (!file.startsWith(importDir) || !Files.isRegularFile(file)
+                || !file.toRealPath().startsWith(importDir.toRealPath())) {
+            throw new IllegalArgumentException("Import file " + path + " does not exist in the import directory");
+        }
+
+        return runImport(file, file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX));
+    }
+
+    /**
+     * Imports an uploaded CSV. The upload is spooled to a temporary file first, so it is
+     * read with the same chunked reader. Not resumable: uploading the file again skips the
+     * already imported rows as existing emails.
+     *
+     * @param in the CSV content, not closed by this method
+     * @return the import report
+     * @throws IllegalArgumentException if the header is invalid
+     * @throws IOException if reading the upload fails
+     */
+    public UserImportReport importUpload(InputStream in) throws IOException {
+        Path file = Files.createTempFile("users-import-", ".csv");
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+
+            return runImport(file, null);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private UserImportReport runImport(Path file, Path checkpointFile) throws IOException {
+        if (!running.add(file)) {
+            throw new IllegalArgumentException("An import of " + file.getFileName() + " is already running");
+        }
+
+        try {
+
+            return doImport(file, checkpointFile);
+        } finally {
+            running.remove(file);
+        }
+    }
+
+    private UserImportReport doImport(Path file, Path checkpointFile) throws IOException {
+        long start = System.currentTimeMillis();
+        Columns columns;
+        long dataOffset;
+        long dataLines;
+        try (CsvRecordReader header = new CsvRecordReader(file, 0, 0)) {
+            columns = Columns.of(header.next());
+            dataOffset = header.offset();
+            dataLines = header.lines();
+        }
+
+        Checkpoint checkpoint = checkpointFile == null ? null : Checkpoint.load(checkpointFile, file);
+        if (checkpoint == null) {
+            checkpoint = new Checkpoint(dataOffset, dataLines, 0, 0, 0);
+        } else {
+            logger.info("Resuming import of {} from line {}", file.getFileName(), checkpoint.lines() + 1);
+        }
+        long resumedFromLine = checkpoint.offset() > dataOffset ? checkpoint.lines() + 1 : 0;
+
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        CsvRecordReader reader = new CsvRecordReader(file, checkpoint.offset(), checkpoint.lines());
+        Thread parser = new Thread(() -> parse(reader, columns, queue), "user-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        List<UserImportReport.RowError> errors = new ArrayList<>();
+        try {
+            while (true) {
+                Chunk chunk = queue.take();
+                if (chunk.failure != null) {
+                    throw chunk.failure;
+                }
+
+                int imported = write(chunk, errors);
+                checkpoint = new Checkpoint(chunk.offset, chunk.lines,
+                        checkpoint.rowsRead() + chunk.rows,
+                        checkpoint.imported() + imported,
+                        checkpoint.failed() + chunk.rows - imported);
+                if (chunk.last) {
+                    break;
+                }
+                if (checkpointFile != null) {
+                    checkpoint.store(checkpointFile, file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of " + file.getFileName() + " was interrupted", e);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Import of {} stopped after line {}, imported {} users: {}",
+                    file.getFileName(), checkpoint.lines(), checkpoint.imported(), e.getMessage());
+            throw e;
+        } finally {
+            parser.interrupt();
+        }
+
+        if (checkpointFile != null) {
+            Files.deleteIfExists(checkpointFile);
+        }
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Imported {} of {} users from {} in {} ms",
+                checkpoint.imported(), checkpoint.rowsRead(), file.getFileName(), duration);
+
+        return new UserImportReport(checkpoint.rowsRead(), checkpoint.imported(), checkpoint.failed(),
+                resumedFromLine, errors, duration);
+    }
+
+    /**
+     * Parser thread: reads and validates rows and queues them in chunks.
+     * Stops when interrupted, which the writer does once it is done or has failed.
+     */
+    private void parse(CsvRecordReader reader, Columns columns, BlockingQueue<Chunk> queue) {
+        try (reader) {
+            Chunk chunk = new Chunk();
+            Set<String> chunkEmails = new HashSet<>();
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                chunk.rows++;
+                long line = reader.recordLine();
+                try {
+                    UserEntity user = columns.toUser(record);
+                    UserServiceImpl.validateNewUser(user);
+                    if (chunkEmails.add(user.getEmail())) {
+                        chunk.users.add(user);
+                        chunk.userLines.add(line);
+                    } else {
+                        chunk.errors.add(new UserImportReport.RowError(line,
+                                "Duplicate email " + user.getEmail() + " in file"));
+                    }
+                } catch (IllegalArgumentException e) {
+                    chunk.errors.add(new UserImportReport.RowError(line, e.getMessage()));
+                }
+
+                if (chunk.rows == chunkSize) {
+                    queue.put(chunk.end(reader, false));
+                    chunk = new Chunk();
+                    chunkEmails.clear();
+                }
+            }
+            queue.put(chunk.end(reader, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            try {
+                queue.put(Chunk.failed(e instanceof IOException io ? io : new IOException(e)));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Inserts one chunk in its own transaction, one per shard with sharding.
+     *
+     * @return number of inserted users
+     */
+    private int write(Chunk chunk, List<UserImportReport.RowError> errors) {
+        List<UserEntity> saved = transactionTemplate.execute(status -> {
+            List<String> possiblyTaken = chunk.users.stream()
+                    .map(UserEntity::getEmail)
+                    .filter(emailIndex::mightContain)
+                    .toList();
+            Set<String> existingEmails = findExistingEmails(possiblyTaken);
+            existingEmails.addAll(userShards.claimEmails(chunk.users.stream()
+                    .map(UserEntity::getEmail)
+                    .filter(email -> !existingEmails.contains(email))
+                    .toList()));
+
+            List<UserEntity> toInsert = chunk.users.stream()
+                    .filter(user -> !existingEmails.contains(user.getEmail()))
+                    .toList();
+
+            // saveAll persists the given instances, which then carry their IDs; emails the index
+            // wrongly reported absent are found on a unique violation and added to existingEmails
+            List<UserShards.FailedShardWrite> failures = userShards.writeByShardForNewUsers(toInsert,
+                    userRepository::saveAll, userRepository::findExistingEmails, existingEmails);
+            if (!failures.isEmpty()) {
+                // stops the import like a failed chunk without sharding, a resume reports the saved users as existing
+                throw failures.get(0).cause();
+            }
+
+            List<UserEntity> inserted = new ArrayList<>(toInsert.size());
+            for (int i = 0; i < chunk.users.size(); i++) {
+                UserEntity user = chunk.users.get(i);
+                if (existingEmails.contains(user.getEmail())) {
+                    addError(errors, new UserImportReport.RowError(chunk.userLines.get(i),
+                            "User with email " + user.getEmail() + " already exists"));
+                    emailIndex.add(user.getEmail());
+                } else {
+                    inserted.add(user);
+                }
+            }
+
+            return inserted;
+        });
+
+        chunk.errors.forEach(error -> addError(errors, error));
+        for (UserEntity user : saved) {
+            userCache.evict(user.getId(), user.getEmail());
+            emailIndex.add(user.getEmail());
+            userStats.recordCreated(user.getAge());
+            eventPublisher.publishEvent(UserChangedEvent.created(UserDTO.from(user)));
+        }
+
+        return saved.size();
+    }
+
+    private Set<String> findExistingEmails(List<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, emails.size()));
+            existing.addAll(userShards.readByShard(userShards.groupEmailsByShard(chunk),
+                    userRepository::findExistingEmails));
+        }
+
+        return existing;
+    }
+
+    private static void addError(List<UserImportReport.RowError> errors, UserImportReport.RowError error) {
+        if (errors.size() < UserImportReport.MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Positions of the used columns, resolved from the header line.
+     */
+    private record Columns(int name, int email, int age) {
+
+        static Columns of(List<String> header) {
+            if (header == null) {
+                throw new IllegalArgumentException("Import file is empty");
+            }
+
+            List<String> names = header.stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).toList();
+            Columns columns = new Columns(names.indexOf("name"), names.indexOf("email"), names.indexOf("age"));
+            if (columns.name < 0 || columns.email < 0 || columns.age < 0) {
+                throw new IllegalArgumentException("Import header must contain name, email and age columns, got "
+                        + header);
+            }
+
+            return columns;
+        }
+
+        UserEntity toUser(List<String> record) {
+            String age = field(record, this.age);
+            if (age == null || age.isBlank()) {
+                throw new IllegalArgumentException("User age cannot be empty");
+            }
+
+            try {
+
+                return new UserEntity(field(record, name), field(record, email), Integer.valueOf(age.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid age " + age);
+            }
+        }
+
+        private static String field(List<String> record, int index) {
+
+            return index < record.size() ? record.get(index) : null;
+        }
+    }
+
+    /**
+     * Rows of one transaction, handed from the parser to the writer.
+     */
+    private static final class Chunk {
+
+        final List<UserEntity> users = new ArrayList<>();
+        final List<Long> userLines = new ArrayList<>();
+        final List<UserImportReport.RowError> errors = new ArrayList<>();
+        int rows;
+        long offset;
+        long lines;
+        boolean last;
+        IOException failure;
+
+        static Chunk failed(IOException failure) {
+            Chunk chunk = new Chunk();
+            chunk.failure = failure;
+
+            return chunk;
+        }
+
+        Chunk end(CsvRecordReader reader, boolean last) {
+            this.offset = reader.offset();
+            this.lines = reader.lines();
+            this.last = last;
+
+            return this;
+        }
+    }
+
+    /**
+     * Progress of a file import up to the last committed chunk. Stored with the size
+     * and modification time of the file, so a changed file is not resumed at a
+     * position that no longer is a record boundary.
+     */
+    private record Checkpoint(long offset, long lines, long rowsRead, long imported, long failed) {
+
+        static Checkpoint load(Path checkpointFile, Path file) throws IOException {
+            if (!Files.exists(checkpointFile)) {
+
+                return null;
+            }
+
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(checkpointFile)) {
+                properties.load(in);
+            }
+
+            if (Long.parseLong(properties.getProperty("size")) != Files.size(file)
+                    || Long.parseLong(properties.getProperty("lastModified")) != Files.getLastModifiedTime(file).toMillis()) {
+                throw new IllegalArgumentException("Import file " + file.getFileName()
+                        + " has changed since the last checkpoint, delete " + checkpointFile.getFileName()
+                        + " to import it from the start");
+            }
+
+            return new Checkpoint(Long.parseLong(properties.getProperty("offset")),
+                    Long.parseLong(properties.getProperty("lines")),
+                    Long.parseLong(properties.getProperty("rowsRead")),
+                    Long.parseLong(properties.getProperty("imported")),
+                    Long.parseLong(properties.getProperty("failed")));
+        }
+
+        /**
+         * Writes the checkpoint to a temporary file and renames it over the old one,
+         * so a crash never leaves a half-written checkpoint behind.
+         */
+        void store(Path checkpointFile, Path file) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("size", Long.toString(Files.size(file)));
+            properties.setProperty("lastModified", Long.toString(Files.getLastModifiedTime(file).toMillis()));
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("lines", Long.toString(lines));
+            properties.setProperty("rowsRead", Long.toString(rowsRead));
+            properties.setProperty("imported", Long.toString(imported));
+            properties.setProperty("failed", Long.toString(failed));
+
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "User import checkpoint");
+            }
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent database lookups of the same user by ID or by email,
+ * so a burst of requests for one hot profile runs a single query.
+ *
+ * The query runs under the request deadline of the leader. If that deadline runs
+ * out, each follower repeats the query under its own deadline instead of failing
+ * with the leader's timeout.
+ */
+@Component
+public class UserLookupCoalescer {
+
+    private final SingleFlight<Long, Optional<UserDTO>> byId;
+    private final SingleFlight<String, Optional<UserDTO>> byEmail;
+
+    public UserLookupCoalescer(@Value("${app.users.single-flight.timeout:2s}") Duration timeout) {
+        this.byId = new SingleFlight<>(timeout, user -> user.map(UserCache::copy),
+                UserLookupCoalescer::isDeadlineExceeded);
+        this.byEmail = new SingleFlight<>(timeout, user -> user.map(UserCache::copy),
+                UserLookupCoalescer::isDeadlineExceeded);
+    }
+
+    public Optional<UserDTO> findById(Long id, Function<Long, Optional<UserDTO>> loader) {
+
+        return byId.execute(id, () -> loader.apply(id));
+    }
+
+    public Optional<UserDTO> findByEmail(String email, Function<String, Optional<UserDTO>> loader) {
+
+        return byEmail.execute(email, () -> loader.apply(email));
+    }
+
+    public SingleFlight.Stats byIdStats() {
+
+        return byId.stats();
+    }
+
+    public SingleFlight.Stats byEmailStats() {
+
+        return byEmail.stats();
+    }
+
+    private static boolean isDeadlineExceeded(Throwable failure) {
+
+        return failure instanceof TransactionTimedOutException || failure instanceof QueryTimeoutException;
+    }
+}
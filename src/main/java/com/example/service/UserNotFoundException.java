@@ -0,0 +1,17 @@
+package com.example.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a write targets a user ID that does not exist. Still an
+ * IllegalArgumentException for callers that handle invalid input as a whole,
+ * but mapped to 404 Not Found and timed apart from validation errors.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UserNotFoundException extends IllegalArgumentException {
+
+    public UserNotFoundException(Long id) {
+        super("User with ID " + id + " does not exist");
+    }
+}
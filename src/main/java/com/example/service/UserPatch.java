@@ -0,0 +1,37 @@
+package com.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Partial update of a user: only the non-null fields are written, the others keep their value.
+ *
+ * @param name  the new name, null to leave it unchanged
+ * @param email the new email, null to leave it unchanged
+ * @param age   the new age, null to leave it unchanged
+ */
+public record UserPatch(String name, String email, Integer age) {
+
+    public boolean isEmpty() {
+
+        return name == null && email == null && age == null;
+    }
+
+    /**
+     * @return the patched fields by name, without the unchanged ones
+     */
+    public Map<String, Object> changedFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (name != null) {
+            fields.put("name", name);
+        }
+        if (email != null) {
+            fields.put("email", email);
+        }
+        if (age != null) {
+            fields.put("age", age);
+        }
+
+        return fields;
+    }
+}
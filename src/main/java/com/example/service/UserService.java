@@ -1,9 +1,11 @@
 package com.example.service;
 
+import com.example.dto.UserDTO;
 import com.example.entity.UserEntity;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing User entities.
@@ -13,6 +15,9 @@ import java.util.Optional;
  * - Input validation
  * - Exception handling
  * - Transaction management
+ *
+ * Read methods return UserDTO projections loaded in read-only transactions,
+ * never managed entities. Write methods take and return UserEntity.
  */
 public interface UserService {
 
@@ -28,6 +33,18 @@ public interface UserService {
      */
     UserEntity createUser(UserEntity userEntity);
 
+    /**
+     * Creates many users in a single transaction using JDBC batch inserts.
+     * Each user is validated with the same rules as {@link #createUser(UserEntity)};
+     * duplicate emails are checked for the whole batch with one query.
+     * Invalid or duplicate users are reported and skipped, the rest are inserted.
+     *
+     * @param userEntities the users to create, must not be null, at most 10000 items
+     * @return one result per input user, in input order
+     * @throws IllegalArgumentException if the list is null or too large
+     */
+    List<BatchCreateResult> createUsers(List<UserEntity> userEntities);
+
     /**
      * Retrieves a user by their unique identifier.
      *
@@ -35,14 +52,44 @@ public interface UserService {
      * @return Optional containing the user if found, empty Optional otherwise
      * @throws IllegalArgumentException if ID is null or invalid (less than or equal to 0)
      */
-    Optional<UserEntity> getUserById(Long id);
+    Optional<UserDTO> getUserById(Long id);
+
+    /**
+     * Returns the current version of a user without loading the whole row.
+     * Answered from the user cache when possible, otherwise with a version-only query.
+     *
+     * @param id the unique identifier of the user, must be positive
+     * @return Optional containing the version if the user exists, empty Optional otherwise
+     * @throws IllegalArgumentException if ID is null or invalid (less than or equal to 0)
+     */
+    Optional<Long> getUserVersion(Long id);
 
     /**
      * Retrieves all users from the database.
      *
      * @return List of all users, empty list if no users exist
      */
-    List<UserEntity> getAllUsers();
+    List<UserDTO> getAllUsers();
+
+    /**
+     * Retrieves one keyset page of users ordered by ID.
+     * Returns at most {@code limit} users whose ID is greater than {@code afterId}.
+     *
+     * @param afterId the last ID of the previous page, null or 0 for the first page
+     * @param limit maximum number of users to return, between 1 and 1000
+     * @return List of users ordered by ID, empty list if there are no more users
+     * @throws IllegalArgumentException if afterId is negative or limit is out of range
+     */
+    List<UserDTO> getUsersAfter(Long afterId, int limit);
+
+    /**
+     * Streams all users in ID order to the given action without loading
+     * the whole table into memory. Runs in a single read-only transaction.
+     *
+     * @param action callback invoked once per user, must not be null
+     * @throws IllegalArgumentException if action is null
+     */
+    void forEachUser(Consumer<UserDTO> action);
 
     /**
      * Retrieves a user by email address.
@@ -52,29 +99,90 @@ public interface UserService {
      * @return Optional containing the user if found, empty Optional otherwise
      * @throws IllegalArgumentException if email is null or empty
      */
-    Optional<UserEntity> getUserByEmail(String email);
+    Optional<UserDTO> getUserByEmail(String email);
+
+    /**
+     * Retrieves many users by ID in one read-only transaction.
+     * Users still in the cache are served from it, the rest are loaded
+     * with chunked {@code WHERE id IN (...)} queries.
+     *
+     * @param ids the user IDs to look up, must not be null, at most 10000 items
+     * @return the users that exist, in the order of their first occurrence in {@code ids}
+     * @throws IllegalArgumentException if the list is null, too large or contains an invalid ID
+     */
+    List<UserDTO> getUsersByIds(List<Long> ids);
+
+    /**
+     * Retrieves many users by email in one read-only transaction,
+     * with chunked {@code WHERE email IN (...)} queries.
+     *
+     * @param emails the email addresses to look up, must not be null, at most 10000 items
+     * @return the users that exist, in the order of their first occurrence in {@code emails}
+     * @throws IllegalArgumentException if the list is null, too large or contains an empty email
+     */
+    List<UserDTO> getUsersByEmails(List<String> emails);
 
     /**
      * Updates an existing user with new data.
      * User must exist in the database before update.
      *
+     * If the entity carries a version, the update only applies while the stored
+     * row still has that version (optimistic concurrency, no locks).
+     *
      * @param userEntity the user entity with updated data, must not be null
-     * @return the updated UserEntity
+     * @return the updated UserEntity, with its new version
      * @throws IllegalArgumentException if user entity is null
      * @throws IllegalArgumentException if user ID is null or invalid
-     * @throws IllegalArgumentException if user does not exist in database
+     * @throws UserNotFoundException if user does not exist in database
+     * @throws VersionMismatchException if the user exists with a different version
      */
     UserEntity updateUser(UserEntity userEntity);
 
+    /**
+     * Changes only the fields set in the patch, with a single UPDATE and without
+     * reading the user first. Only the changed fields are validated.
+     *
+     * @param id the unique identifier of the user, must be positive
+     * @param patch the fields to change, at least one must be set
+     * @param expectedVersion the version the caller last saw, null to patch unconditionally
+     * @return the user as far as known after the patch: all fields if it was cached,
+     *         otherwise only ID, the changed fields and the new version
+     * @throws IllegalArgumentException if ID is invalid, the patch is empty or a changed field is invalid
+     * @throws UserNotFoundException if user does not exist
+     * @throws IllegalArgumentException if the new email is taken
+     * @throws VersionMismatchException if the user exists with a different version
+     */
+    UserDTO patchUser(Long id, UserPatch patch, Long expectedVersion);
+
     /**
      * Deletes a user by their unique identifier.
      *
      * @param id the unique identifier of the user to delete, must be positive
      * @throws IllegalArgumentException if ID is null or invalid
-     * @throws IllegalArgumentException if user does not exist
+     * @throws UserNotFoundException if user does not exist
      */
     void deleteUser(Long id);
 
+    /**
+     * Deletes a user only while it still has the expected version.
+     *
+     * @param id the unique identifier of the user to delete, must be positive
+     * @param expectedVersion the version the caller last saw, null to delete unconditionally
+     * @throws IllegalArgumentException if ID is null or invalid
+     * @throws UserNotFoundException if user does not exist
+     * @throws VersionMismatchException if the user exists with a different version
+     */
+    void deleteUser(Long id, Long expectedVersion);
+
+    /**
+     * Returns user count and age statistics from in-memory aggregates,
+     * without querying the database.
+     *
+     * @return the current statistics
+     * @throws UserStatsUnavailableException if the statistics have not been loaded yet
+     */
+    UserStatistics getStatistics();
+
     /**
      * Checks if a user exists by their unique identifier.
      *
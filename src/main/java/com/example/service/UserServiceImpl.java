@@ -1,109 +1,420 @@
 package com.example.service;
 
+import com.example.config.ReplicaRoutingDataSource;
+import com.example.dto.UserDTO;
 import com.example.entity.UserEntity;
+import com.example.repository.UpdatedUser;
 import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Service implementation for managing users with Spring Data JPA
+ *
+ * Reads run in read-only transactions, which go to the read replica when one is
+ * configured. Reads of users this instance wrote within the replication lag window
+ * are sent to the primary instead, so a client reads its own writes. List reads
+ * (all users, pages) are not checked and may lag behind by up to that window.
+ *
+ * With sharding, every repository call goes through {@link UserShards}, which picks
+ * the shard of the user or fans out to all shards.
  */
 @Service
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LogManager.getLogger(UserServiceImpl.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
 
     private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserCache userCache;
+    private final EmailIndex emailIndex;
+    private final UserLookupCoalescer lookupCoalescer;
+    private final RecentWrites recentWrites;
+    private final UserStats userStats;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, UserShards userShards, UserCache userCache,
+                           EmailIndex emailIndex, UserLookupCoalescer lookupCoalescer, RecentWrites recentWrites,
+                           UserStats userStats, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userCache = userCache;
+        this.emailIndex = emailIndex;
+        this.lookupCoalescer = lookupCoalescer;
+        this.recentWrites = recentWrites;
+        this.userStats = userStats;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public UserEntity createUser(UserEntity userEntity) {
-        if (userEntity == null) {
-            throw new IllegalArgumentException("User entity cannot be null");
-        }
+        validateNewUser(userEntity);
 
-        if (userEntity.getEmail() == null || userEntity.getEmail().trim().isEmpty()) {
-            throw new IllegalArgumentException("User email cannot be empty");
+        String email = userEntity.getEmail();
+        if (emailIndex.mightContain(email) && existsByEmail(email)) {
+            throw new IllegalArgumentException("User with email " + email + " already exists");
         }
 
-        if (userEntity.getName() == null || userEntity.getName().trim().isEmpty()) {
-            throw new IllegalArgumentException("User name cannot be empty");
+        if (!userShards.claimEmail(email)) {
+            emailIndex.add(email);
+            throw new IllegalArgumentException("User with email " + email + " already exists");
         }
 
-        if (userRepository.existsByEmail(userEntity.getEmail())) {
-            throw new IllegalArgumentException("User with email " + userEntity.getEmail() + " already exists");
+        UserEntity savedUser;
+        try {
+            savedUser = userShards.onShardForNewUser(email, () -> userRepository.saveAndFlush(userEntity));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent creator won the race, or the index said "absent" for a taken email
+            if (existsByEmail(email)) {
+                emailIndex.add(email);
+                throw new IllegalArgumentException("User with email " + email + " already exists");
+            }
+            throw e;
         }
-
-        UserEntity savedUser = userRepository.save(userEntity);
+        emailIndex.add(email);
+        recentWrites.record(savedUser.getId(), email);
+        userStats.recordCreated(savedUser.getAge());
+        userCache.put(UserDTO.from(savedUser));
+        eventPublisher.publishEvent(UserChangedEvent.created(UserDTO.from(savedUser)));
         logger.info("User created successfully with ID: {}", savedUser.getId());
 
         return savedUser;
     }
 
     @Override
-    public Optional<UserEntity> getUserById(Long id) {
-        if (id == null || id <= 0) {
-            throw new IllegalArgumentException("User ID must be valid");
+    @Transactional
+    public List<BatchCreateResult> createUsers(List<UserEntity> userEntities) {
+        if (userEntities == null) {
+            throw new IllegalArgumentException("User list cannot be null");
         }
 
-        return userRepository.findById(id);
+        if (userEntities.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " users");
+        }
+
+        BatchCreateResult[] results = new BatchCreateResult[userEntities.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+
+        for (int i = 0; i < userEntities.size(); i++) {
+            UserEntity userEntity = userEntities.get(i);
+            try {
+                validateNewUser(userEntity);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchCreateResult.failed(i, e.getMessage());
+                continue;
+            }
+
+            if (candidates.putIfAbsent(userEntity.getEmail(), i) != null) {
+                results[i] = BatchCreateResult.failed(i, "Duplicate email " + userEntity.getEmail() + " in batch");
+            }
+        }
+
+        List<String> possiblyTaken = candidates.keySet().stream()
+                .filter(emailIndex::mightContain)
+                .toList();
+        Set<String> existingEmails = findExistingEmails(possiblyTaken);
+        List<UserEntity> toInsert = new ArrayList<>(candidates.size());
+        List<Integer> insertIndexes = new ArrayList<>(candidates.size());
+
+        existingEmails.addAll(userShards.claimEmails(candidates.keySet().stream()
+                .filter(email -> !existingEmails.contains(email))
+                .toList()));
+
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            if (!existingEmails.contains(candidate.getKey())) {
+                toInsert.add(userEntities.get(candidate.getValue()));
+                insertIndexes.add(candidate.getValue());
+            }
+        }
+
+        // saveAll persists the given instances, which then carry their IDs; emails the index
+        // wrongly reported absent are found on a unique violation and added to existingEmails
+        Set<UserEntity> notSaved = Collections.newSetFromMap(new IdentityHashMap<>());
+        userShards.writeByShardForNewUsers(toInsert, userRepository::saveAll, userRepository::findExistingEmails,
+                        existingEmails)
+                .forEach(failure -> notSaved.addAll(failure.users()));
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            if (existingEmails.contains(candidate.getKey())) {
+                int index = candidate.getValue();
+                results[index] = BatchCreateResult.failed(index,
+                        "User with email " + candidate.getKey() + " already exists");
+                emailIndex.add(candidate.getKey());
+            }
+        }
+        int created = 0;
+        for (int i = 0; i < toInsert.size(); i++) {
+            int index = insertIndexes.get(i);
+            UserEntity user = toInsert.get(i);
+            if (results[index] != null) {
+                continue;
+            }
+            if (notSaved.contains(user)) {
+                // with sharding, the other shards of the batch have committed
+                results[index] = BatchCreateResult.failed(index, "User could not be saved, retry later");
+                continue;
+            }
+
+            results[index] = BatchCreateResult.created(index, user);
+            userCache.evict(user.getId(), user.getEmail());
+            emailIndex.add(user.getEmail());
+            recentWrites.record(user.getId(), user.getEmail());
+            userStats.recordCreated(user.getAge());
+            // delivered once the batch has committed
+            eventPublisher.publishEvent(UserChangedEvent.created(UserDTO.from(user)));
+            created++;
+        }
+        logger.info("Batch created {} of {} users", created, userEntities.size());
+
+        return List.of(results);
     }
 
     @Override
-    public List<UserEntity> getAllUsers() {
+    public Optional<UserDTO> getUserById(Long id) {
+        validateId(id);
 
-        return userRepository.findAll();
+        // recently written users bypass the coalescer, its shared lookup may be a replica read
+        return userCache.getById(id, key -> recentWrites.isRecent(key)
+                ? ReplicaRoutingDataSource.onPrimary(() -> findDtoById(key))
+                : lookupCoalescer.findById(key, this::findDtoById));
     }
 
     @Override
-    public Optional<UserEntity> getUserByEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            throw new IllegalArgumentException("Email cannot be empty");
+    public Optional<Long> getUserVersion(Long id) {
+        validateId(id);
+
+        Optional<Long> cached = userCache.peek(id).map(UserDTO::getVersion);
+        if (cached.isPresent()) {
+
+            return cached;
         }
 
-        return userRepository.findByEmail(email);
+        return readFresh(recentWrites.isRecent(id),
+                () -> userShards.onShardOf(id, () -> userRepository.findVersionById(id), Optional.empty()));
     }
 
     @Override
-    public UserEntity updateUser(UserEntity userEntity) {
-        if (userEntity == null) {
-            throw new IllegalArgumentException("User entity cannot be null");
+    @Transactional(readOnly = true)
+    public List<UserDTO> getAllUsers() {
+
+        return userShards.readOnEachShard(userRepository::findAllDtos).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersAfter(Long afterId, int limit) {
+        validatePage(afterId, limit);
+
+        return userShards.readPageAfter(afterId == null ? 0L : afterId, limit, userRepository::findDtoPageAfter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserDTO> action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null");
         }
 
-        if (userEntity.getId() == null || userEntity.getId() <= 0) {
-            throw new IllegalArgumentException("User ID must be valid for update");
+        userShards.forEachShard(() -> userRepository.forEachUser(action));
+    }
+
+    @Override
+    public Optional<UserDTO> getUserByEmail(String email) {
+        validateEmail(email);
+
+        return userCache.getByEmail(email, key -> recentWrites.isRecentEmail(key)
+                ? ReplicaRoutingDataSource.onPrimary(() -> findDtoByEmail(key))
+                : lookupCoalescer.findByEmail(key, this::findDtoByEmail));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersByIds(List<Long> ids) {
+        validateLookupSize(ids);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.forEach(UserServiceImpl::validateId);
+
+        Map<Long, UserDTO> found = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            userCache.peek(id).ifPresentOrElse(user -> found.put(id, user), () -> toLoad.add(id));
         }
+        readFresh(toLoad.stream().anyMatch(recentWrites::isRecent), () -> {
+            userShards.readByShard(userShards.groupIdsByShard(toLoad), shardIds -> {
+                List<UserDTO> users = new ArrayList<>(shardIds.size());
+                for (int from = 0; from < shardIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                    users.addAll(userRepository.findDtosByIdIn(
+                            shardIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, shardIds.size()))));
+                }
+
+                return users;
+            }).forEach(user -> found.put(user.getId(), user));
+
+            return found;
+        });
+
+        return uniqueIds.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> getUsersByEmails(List<String> emails) {
+        validateLookupSize(emails);
+        Set<String> uniqueEmails = new LinkedHashSet<>(emails);
+        uniqueEmails.forEach(UserServiceImpl::validateEmail);
+
+        List<String> toLoad = new ArrayList<>(uniqueEmails);
+        Map<String, UserDTO> found = new HashMap<>();
+        readFresh(toLoad.stream().anyMatch(recentWrites::isRecentEmail), () -> {
+            for (int from = 0; from < toLoad.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<String> chunk = toLoad.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, toLoad.size()));
+                userShards.readByShard(userShards.groupEmailsByShard(chunk), userRepository::findDtosByEmailIn)
+                        .forEach(user -> found.put(user.getEmail(), user));
+            }
+
+            return found;
+        });
+
+        return uniqueEmails.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public UserEntity updateUser(UserEntity userEntity) {
+        validateUpdate(userEntity);
 
-        if (!userRepository.existsById(userEntity.getId())) {
-            throw new IllegalArgumentException("User with ID " + userEntity.getId() + " does not exist");
+        Optional<UserDTO> previous = userCache.peek(userEntity.getId());
+        claimNewEmail(userEntity.getId(), userEntity.getEmail(), previous);
+        Long expectedVersion = userEntity.getVersion();
+        Optional<UpdatedUser> updated = userShards.onShardOf(userEntity.getId(), () -> userRepository.updateUser(
+                userEntity.getId(), expectedVersion, userEntity.getName(), userEntity.getEmail(), userEntity.getAge()),
+                Optional.empty());
+        if (updated.isEmpty()) {
+            throw notFoundOrStale(userEntity.getId(), expectedVersion);
         }
 
-        UserEntity updatedUser = userRepository.save(userEntity);
-        logger.info("User updated successfully with ID: {}", updatedUser.getId());
+        userEntity.setVersion(updated.get().version());
+        userCache.evict(userEntity.getId(), userEntity.getEmail());
+        emailIndex.add(userEntity.getEmail());
+        recentWrites.record(userEntity.getId(), userEntity.getEmail());
+        releaseOldEmail(userEntity.getId(), updated.get().previousEmail(), userEntity.getEmail());
+        previous.ifPresentOrElse(user -> userStats.recordUpdated(user.getAge(), userEntity.getAge()),
+                userStats::markStale);
+        eventPublisher.publishEvent(UserChangedEvent.updated(UserDTO.from(userEntity)));
+        logger.info("User updated successfully with ID: {}", userEntity.getId());
 
-        return updatedUser;
+        return userEntity;
     }
 
     @Override
-    public void deleteUser(Long id) {
-        if (id == null || id <= 0) {
-            throw new IllegalArgumentException("User ID must be valid");
+    public UserDTO patchUser(Long id, UserPatch patch, Long expectedVersion) {
+        validateId(id);
+        validatePatch(patch);
+
+        Optional<UserDTO> previous = userCache.peek(id);
+        if (patch.email() != null) {
+            claimNewEmail(id, patch.email(), previous);
+        }
+        Optional<UpdatedUser> updated;
+        try {
+            updated = userShards.onShardOf(id, () -> userRepository.patchUser(id, expectedVersion,
+                    patch.name(), patch.email(), patch.age()), Optional.empty());
+        } catch (DataIntegrityViolationException e) {
+            // the only unique column besides the ID
+            if (patch.email() != null) {
+                emailIndex.add(patch.email());
+                throw new IllegalArgumentException("User with email " + patch.email() + " already exists");
+            }
+            throw e;
         }
+        if (updated.isEmpty()) {
+            throw notFoundOrStale(id, expectedVersion);
+        }
+
+        Long version = updated.get().version();
+        UserDTO patched = previous
+                .map(user -> new UserDTO(id, patch.name() != null ? patch.name() : user.getName(),
+                        patch.email() != null ? patch.email() : user.getEmail(),
+                        patch.age() != null ? patch.age() : user.getAge(), version))
+                .orElseGet(() -> new UserDTO(id, patch.name(), patch.email(), patch.age(), version));
+        Map<String, Object> changes = patch.changedFields();
+        changes.put("version", version);
+        if (patch.email() != null) {
+            userCache.evict(id, patch.email());
+            emailIndex.add(patch.email());
+            releaseOldEmail(id, updated.get().previousEmail(), patch.email());
+        } else {
+            userCache.evictById(id);
+        }
+        recentWrites.record(id, patch.email());
+        // counters only move when the age is patched, and need its previous value to move exactly
+        if (patch.age() != null) {
+            previous.ifPresentOrElse(user -> userStats.recordUpdated(user.getAge(), patch.age()),
+                    userStats::markStale);
+        }
+        // only a cached user gives the whole user, otherwise consumers get the changed fields alone
+        eventPublisher.publishEvent(UserChangedEvent.patched(id, previous.isPresent() ? patched : null, changes));
+        logger.info("User patched successfully with ID: {}", id);
+
+        return patched;
+    }
+
+    @Override
+    public void deleteUser(Long id) {
+        deleteUser(id, null);
+    }
 
-        if (!userRepository.existsById(id)) {
-            throw new IllegalArgumentException("User with ID " + id + " does not exist");
+    @Override
+    public void deleteUser(Long id, Long expectedVersion) {
+        validateId(id);
+
+        Optional<UserDTO> previous = userCache.peek(id);
+        Optional<String> deletedEmail = userShards.onShardOf(id,
+                () -> userRepository.deleteUser(id, expectedVersion), Optional.empty());
+        if (deletedEmail.isEmpty()) {
+            throw notFoundOrStale(id, expectedVersion);
         }
 
-        userRepository.deleteById(id);
+        userCache.evictById(id);
+        emailIndex.remove(deletedEmail.get());
+        userShards.releaseEmail(deletedEmail.get(), id);
+        recentWrites.record(id, deletedEmail.get());
+        previous.ifPresentOrElse(user -> userStats.recordDeleted(user.getAge()), userStats::recordDeletedUnknownAge);
+        eventPublisher.publishEvent(UserChangedEvent.deleted(id));
         logger.info("User deleted successfully with ID: {}", id);
     }
 
+    @Override
+    public UserStatistics getStatistics() {
+        if (userStats.getReconciledAt() == null) {
+            throw new UserStatsUnavailableException("User statistics are not loaded yet");
+        }
+
+        return userStats.snapshot();
+    }
+
     @Override
     public boolean userExists(Long id) {
         if (id == null || id <= 0) {
@@ -111,7 +422,7 @@ public class UserServiceImpl implements UserService {
             return false;
         }
 
-        return userRepository.existsById(id);
+        return userShards.onShardOf(id, () -> userRepository.existsById(id), false);
     }
 
     @Override
@@ -121,6 +432,158 @@ public class UserServiceImpl implements UserService {
             return false;
         }
 
-        return userRepository.existsByEmail(email);
+        return existsByEmail(email);
+    }
+
+    /*
+     * Validation rules shared with the bulk CSV import and the reactive API,
+     * so every entry point accepts and rejects the same input.
+     */
+
+    static void validateId(Long id) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("User ID must be valid");
+        }
+    }
+
+    static void validateEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            throw new IllegalArgumentException("Email cannot be empty");
+        }
+    }
+
+    static void validatePage(Long afterId, int limit) {
+        if (afterId != null && afterId < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    static void validateUpdate(UserEntity userEntity) {
+        if (userEntity == null) {
+            throw new IllegalArgumentException("User entity cannot be null");
+        }
+
+        if (userEntity.getId() == null || userEntity.getId() <= 0) {
+            throw new IllegalArgumentException("User ID must be valid for update");
+        }
+    }
+
+    /**
+     * Checks only the fields a patch changes, with the same rules as for a new user.
+     */
+    static void validatePatch(UserPatch patch) {
+        if (patch == null || patch.isEmpty()) {
+            throw new IllegalArgumentException("Patch must change at least one field");
+        }
+
+        if (patch.email() != null && patch.email().trim().isEmpty()) {
+            throw new IllegalArgumentException("User email cannot be empty");
+        }
+
+        if (patch.name() != null && patch.name().trim().isEmpty()) {
+            throw new IllegalArgumentException("User name cannot be empty");
+        }
+    }
+
+    /**
+     * Rules every new user must satisfy.
+     */
+    static void validateNewUser(UserEntity userEntity) {
+        if (userEntity == null) {
+            throw new IllegalArgumentException("User entity cannot be null");
+        }
+
+        if (userEntity.getEmail() == null || userEntity.getEmail().trim().isEmpty()) {
+            throw new IllegalArgumentException("User email cannot be empty");
+        }
+
+        if (userEntity.getName() == null || userEntity.getName().trim().isEmpty()) {
+            throw new IllegalArgumentException("User name cannot be empty");
+        }
+    }
+
+    /**
+     * Explains why a conditional write matched no row. Only costs a query
+     * when a version was given, the common unconditional path stays at one statement.
+     */
+    private RuntimeException notFoundOrStale(Long id, Long expectedVersion) {
+        if (expectedVersion != null && userShards.onShardOf(id, () -> userRepository.existsById(id), false)) {
+            userCache.evictById(id);
+
+            return new VersionMismatchException("User with ID " + id + " is no longer at version " + expectedVersion);
+        }
+
+        return new UserNotFoundException(id);
+    }
+
+    /**
+     * Runs a read on the primary if it involves a recently written user.
+     */
+    private static <T> T readFresh(boolean recentlyWritten, Supplier<T> read) {
+
+        return recentlyWritten ? ReplicaRoutingDataSource.onPrimary(read) : read.get();
+    }
+
+    private void validateLookupSize(List<?> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Lookup list cannot be null");
+        }
+
+        if (keys.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Cannot look up more than " + MAX_BATCH_SIZE + " users at once");
+        }
+    }
+
+    private Set<String> findExistingEmails(List<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, emails.size()));
+            existing.addAll(userShards.readByShard(userShards.groupEmailsByShard(chunk),
+                    userRepository::findExistingEmails));
+        }
+
+        return existing;
+    }
+
+    private Optional<UserDTO> findDtoById(Long id) {
+
+        return userShards.onShardOf(id, () -> userRepository.findDtoById(id), Optional.empty());
+    }
+
+    private Optional<UserDTO> findDtoByEmail(String email) {
+
+        return userShards.onShardOfEmail(email, () -> userRepository.findDtoByEmail(email), Optional.empty());
+    }
+
+    private boolean existsByEmail(String email) {
+
+        return userShards.onShardOfEmail(email, () -> userRepository.existsByEmail(email), false);
+    }
+
+    /**
+     * Claims the email a user changes to, so no user on another shard can take it.
+     * Skipped when the cache shows the user already has it.
+     */
+    /**
+     * Frees the email a write replaced, as the database reported it, whether or not the user was cached.
+     */
+    private void releaseOldEmail(Long id, String oldEmail, String newEmail) {
+        if (!oldEmail.equals(newEmail)) {
+            recentWrites.record(null, oldEmail);
+            emailIndex.remove(oldEmail);
+            userShards.releaseEmail(oldEmail, id);
+        }
+    }
+
+    private void claimNewEmail(Long id, String email, Optional<UserDTO> previous) {
+        boolean unchanged = previous.map(UserDTO::getEmail).filter(email::equals).isPresent();
+        if (!unchanged && !userShards.claimEmail(email, id)) {
+            emailIndex.add(email);
+            throw new IllegalArgumentException("User with email " + email + " already exists");
+        }
     }
 }
@@ -0,0 +1,18 @@
+package com.example.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Aggregates over all users, as served by GET /api/users/stats.
+ *
+ * @param total        number of users
+ * @param minAge       lowest age, null if there are no users
+ * @param maxAge       highest age, null if there are no users
+ * @param meanAge      mean age, null if there are no users
+ * @param ageHistogram users per age range ("0-9" to "90-99", "100+", and "&lt;0" if any), in ascending order
+ * @param reconciledAt when the aggregates were last recounted from the database
+ */
+public record UserStatistics(long total, Integer minAge, Integer maxAge, Double meanAge,
+                             Map<String, Long> ageHistogram, Instant reconciledAt) {
+}
@@ -0,0 +1,205 @@
+package com.example.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory aggregates over all users: count and number of users per age.
+ *
+ * Loaded from the database at startup and then kept up to date by the write paths,
+ * so {@link #snapshot()} never queries the database. Counters are atomics, writers
+ * never block each other or readers. A snapshot scans a fixed number of counters,
+ * its cost does not depend on the number of users.
+ *
+ * A write whose previous age is unknown (updated or deleted user not in the cache)
+ * cannot be applied exactly and marks the aggregates as stale. So do writes of other
+ * service instances, which are never seen here. {@link UserStatsReconciler} replaces
+ * the aggregates with fresh database counts, soon after they became stale and
+ * periodically otherwise.
+ */
+@Component
+public class UserStats {
+
+    /**
+     * Ages from 0 to this value have their own counter, any other age is counted in a map.
+     */
+    static final int MAX_TRACKED_AGE = 150;
+
+    private static final int BUCKET_WIDTH = 10;
+    private static final int OPEN_BUCKET_FROM = 100;
+
+    private final AtomicLongArray usersByAge = new AtomicLongArray(MAX_TRACKED_AGE + 1);
+    private final Map<Integer, AtomicLong> usersByUntrackedAge = new ConcurrentHashMap<>();
+    // deletes of users whose age was unknown, subtracted from the total until the next reconciliation
+    private final AtomicLong unattributedDeletes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile boolean stale = true;
+    private volatile Instant reconciledAt;
+
+    public void recordCreated(int age) {
+        add(age, 1);
+        writes.incrementAndGet();
+    }
+
+    public void recordUpdated(int previousAge, int age) {
+        if (previousAge != age) {
+            add(previousAge, -1);
+            add(age, 1);
+        }
+        writes.incrementAndGet();
+    }
+
+    public void recordDeleted(int age) {
+        add(age, -1);
+        writes.incrementAndGet();
+    }
+
+    /**
+     * Records the delete of a user whose age is not known.
+     */
+    public void recordDeletedUnknownAge() {
+        unattributedDeletes.incrementAndGet();
+        markStale();
+    }
+
+    /**
+     * Records a write that could not be applied, the aggregates are corrected by the next reconciliation.
+     */
+    public void markStale() {
+        stale = true;
+        writes.incrementAndGet();
+    }
+
+    public boolean isStale() {
+
+        return stale;
+    }
+
+    public Instant getReconciledAt() {
+
+        return reconciledAt;
+    }
+
+    /**
+     * Number of writes recorded so far. Taken before counting users in the database,
+     * it tells {@link #reconcile} whether writes raced with the count.
+     */
+    public long writeCount() {
+
+        return writes.get();
+    }
+
+    /**
+     * Replaces all aggregates with counts from the database.
+     *
+     * @param usersByAgeInDb number of users per age
+     * @param writeCountBefore {@link #writeCount()} taken before the database was queried
+     */
+    public void reconcile(Map<Integer, Long> usersByAgeInDb, long writeCountBefore) {
+        long[] tracked = new long[MAX_TRACKED_AGE + 1];
+        Map<Integer, AtomicLong> untracked = new ConcurrentHashMap<>();
+        usersByAgeInDb.forEach((age, users) -> {
+            if (isTracked(age)) {
+                tracked[age] = users;
+            } else {
+                untracked.put(age, new AtomicLong(users));
+            }
+        });
+        for (int age = 0; age <= MAX_TRACKED_AGE; age++) {
+            usersByAge.set(age, tracked[age]);
+        }
+        usersByUntrackedAge.keySet().retainAll(untracked.keySet());
+        usersByUntrackedAge.putAll(untracked);
+        unattributedDeletes.set(0);
+        reconciledAt = Instant.now();
+        // a write during the count may or may not be part of it, count again soon
+        stale = writes.get() != writeCountBefore;
+    }
+
+    /**
+     * Computes count, age range, mean age and age histogram from the current counters.
+     */
+    public UserStatistics snapshot() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        long negative = 0;
+        long withAge = 0;
+        long ageSum = 0;
+        Integer minAge = null;
+        Integer maxAge = null;
+
+        Map<Integer, Long> untracked = new TreeMap<>();
+        usersByUntrackedAge.forEach((age, users) -> untracked.put(age, users.get()));
+        for (Map.Entry<Integer, Long> entry : untracked.entrySet()) {
+            if (entry.getValue() > 0 && entry.getKey() < 0) {
+                negative += entry.getValue();
+                withAge += entry.getValue();
+                ageSum += (long) entry.getKey() * entry.getValue();
+                minAge = minAge == null ? entry.getKey() : minAge;
+                maxAge = entry.getKey();
+            }
+        }
+        if (negative > 0) {
+            histogram.put("<0", negative);
+        }
+
+        for (int from = 0; from < OPEN_BUCKET_FROM; from += BUCKET_WIDTH) {
+            histogram.put(from + "-" + (from + BUCKET_WIDTH - 1), 0L);
+        }
+        histogram.put(OPEN_BUCKET_FROM + "+", 0L);
+        for (int age = 0; age <= MAX_TRACKED_AGE; age++) {
+            long users = usersByAge.get(age);
+            if (users > 0) {
+                histogram.merge(bucket(age), users, Long::sum);
+                withAge += users;
+                ageSum += (long) age * users;
+                minAge = minAge == null ? age : minAge;
+                maxAge = age;
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : untracked.entrySet()) {
+            if (entry.getValue() > 0 && entry.getKey() > MAX_TRACKED_AGE) {
+                histogram.merge(bucket(entry.getKey()), entry.getValue(), Long::sum);
+                withAge += entry.getValue();
+                ageSum += (long) entry.getKey() * entry.getValue();
+                minAge = minAge == null ? entry.getKey() : minAge;
+                maxAge = entry.getKey();
+            }
+        }
+
+        long total = Math.max(0, withAge - unattributedDeletes.get());
+        Double meanAge = withAge == 0 ? null : (double) ageSum / withAge;
+
+        return new UserStatistics(total, minAge, maxAge, meanAge, histogram, reconciledAt);
+    }
+
+    private void add(int age, long delta) {
+        if (isTracked(age)) {
+            usersByAge.addAndGet(age, delta);
+        } else {
+            usersByUntrackedAge.computeIfAbsent(age, key -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    private static boolean isTracked(int age) {
+
+        return age >= 0 && age <= MAX_TRACKED_AGE;
+    }
+
+    private static String bucket(int age) {
+        if (age >= OPEN_BUCKET_FROM) {
+
+            return OPEN_BUCKET_FROM + "+";
+        }
+
+        int from = age / BUCKET_WIDTH * BUCKET_WIDTH;
+
+        return from + "-" + (from + BUCKET_WIDTH - 1);
+    }
+}
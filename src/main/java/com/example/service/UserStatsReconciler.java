@@ -0,0 +1,92 @@
+package com.example.service;
+
+import com.example.config.ReplicaRoutingDataSource;
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads {@link UserStats} from the database once the application has started,
+ * and recounts it to correct drift: within stale-delay after a write that could
+ * not be applied exactly, and every reconcile-interval regardless.
+ *
+ * Counts are taken on the primary, a lagging replica would undo recent writes.
+ * With sharding, every shard is counted in parallel and the counts are added up.
+ */
+@Component
+public class UserStatsReconciler {
+    private static final Logger logger = LogManager.getLogger(UserStatsReconciler.class);
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final UserStats userStats;
+    private final Duration reconcileInterval;
+    private final Duration staleDelay;
+
+    public UserStatsReconciler(UserRepository userRepository, UserShards userShards, UserStats userStats,
+                               @Value("${app.users.stats.reconcile-interval:5m}") Duration reconcileInterval,
+                               @Value("${app.users.stats.stale-delay:30s}") Duration staleDelay) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.userStats = userStats;
+        this.reconcileInterval = reconcileInterval;
+        this.staleDelay = staleDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * Checks every few seconds whether a recount is due.
+     */
+    @Scheduled(fixedDelay = 5, initialDelay = 5, timeUnit = TimeUnit.SECONDS)
+    public void reconcileIfDue() {
+        Instant reconciledAt = userStats.getReconciledAt();
+        if (reconciledAt == null) {
+            // not loaded yet, or the last attempt failed
+            reconcile();
+
+            return;
+        }
+
+        Duration since = Duration.between(reconciledAt, Instant.now());
+        if (since.compareTo(reconcileInterval) >= 0
+                || (userStats.isStale() && since.compareTo(staleDelay) >= 0)) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Replaces the aggregates with fresh counts from the database.
+     */
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        long writesBefore = userStats.writeCount();
+        Map<Integer, Long> usersByAge = new HashMap<>();
+        try {
+            userShards.readOnEachShard(() -> ReplicaRoutingDataSource.onPrimary(userRepository::countUsersByAge))
+                    .forEach(rows -> rows.forEach(row -> usersByAge.merge(row.getAge(), row.getUsers(), Long::sum)));
+        } catch (RuntimeException e) {
+            logger.warn("User statistics could not be recounted, keeping the current values", e);
+
+            return;
+        }
+        userStats.reconcile(usersByAge, writesBefore);
+        logger.debug("User statistics recounted over {} distinct ages in {} ms",
+                usersByAge.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when statistics are requested before they were first loaded from the database.
+ * Mapped to 503 Service Unavailable, clients are expected to retry shortly.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UserStatsUnavailableException extends RuntimeException {
+
+    public UserStatsUnavailableException(String message) {
+        super(message);
+    }
+}
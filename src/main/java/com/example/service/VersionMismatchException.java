@@ -0,0 +1,18 @@
+package com.example.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a conditional write finds the user at a different version
+ * than the caller expected, i.e. someone else changed it in between.
+ * Mapped to 412 Precondition Failed, clients are expected to re-read and retry.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class VersionMismatchException extends OptimisticLockingFailureException {
+
+    public VersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+-- Schema of UserEntity as created by Hibernate, IDs allocated in blocks of 50
+create sequence users_id_seq start with 1 increment by 50;
+
+create table users (
+    id bigint not null,
+    name varchar(255) not null,
+    email varchar(255) not null,
+    age integer not null,
+    version bigint default 0 not null,
+    primary key (id),
+    constraint uk_users_email unique (email)
+);
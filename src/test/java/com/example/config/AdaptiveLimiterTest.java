@@ -0,0 +1,185 @@
+package com.example.config;
+
+import com.example.config.AdaptiveLimiter.Priority;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AdaptiveLimiter Unit Tests")
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long CACHE_HIT = TimeUnit.MICROSECONDS.toNanos(20);
+    private static final String ENDPOINT = "GET /api/users/{id}";
+
+    @Test
+    @DisplayName("Should admit up to the limit and reject without waiting when max-wait is zero")
+    void testRejectsOverLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10, 2.0, Duration.ZERO);
+
+        assertTrue(limiter.tryAcquire(Priority.READ));
+        assertTrue(limiter.tryAcquire(Priority.WRITE));
+        assertFalse(limiter.tryAcquire(Priority.READ));
+        assertFalse(limiter.tryAcquire(Priority.WRITE));
+
+        assertEquals(2, limiter.inFlight());
+        assertEquals(1, limiter.rejections(Priority.READ));
+        assertEquals(1, limiter.rejections(Priority.WRITE));
+    }
+
+    @Test
+    @DisplayName("Should grow the limit while responses stay fast and the limit is used")
+    void testAdditiveIncrease() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 6, 2.0, Duration.ZERO);
+
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertTrue(limiter.tryAcquire(Priority.READ));
+            }
+            for (int j = 0; j < 3; j++) {
+                limiter.release(FAST, ENDPOINT);
+            }
+        }
+        assertEquals(6, limiter.limit());
+
+        // one caller at a time does not use half of the limit, no further growth
+        AdaptiveLimiter idle = new AdaptiveLimiter(4, 1, 10, 2.0, Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            idle.tryAcquire(Priority.READ);
+            idle.release(FAST, ENDPOINT);
+        }
+        assertEquals(4, idle.limit());
+    }
+
+    @Test
+    @DisplayName("Should back off once per latency period when responses slow down")
+    void testMultiplicativeDecrease() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 100, 2.0, Duration.ZERO);
+        // more than half of the limit in use, so the latency reflects the load
+        for (int i = 0; i < 15; i++) {
+            limiter.tryAcquire(Priority.READ);
+        }
+        limiter.tryAcquire(Priority.READ);
+        limiter.release(FAST, ENDPOINT);
+        int before = limiter.limit();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(Priority.READ);
+            limiter.release(SLOW, ENDPOINT);
+        }
+
+        // the recent average needs a few slow samples to cross the tolerance, then backs off once
+        assertTrue(limiter.limit() < before);
+        assertTrue(limiter.limit() > before * AdaptiveLimiter.BACKOFF_RATIO * AdaptiveLimiter.BACKOFF_RATIO);
+    }
+
+    @Test
+    @DisplayName("Should not back off when fast and slow endpoints or cache hits and misses mix")
+    void testMixedLatencies() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 100, 2.0, Duration.ZERO);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(Priority.READ);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire(Priority.READ);
+            // cache hits and database reads on one endpoint, and a slower list endpoint
+            limiter.release(i % 2 == 0 ? CACHE_HIT : FAST, ENDPOINT);
+            limiter.tryAcquire(Priority.READ);
+            limiter.release(SLOW, "GET /api/users");
+        }
+
+        // grown as far as the ten held calls use it, never backed off
+        assertEquals(22, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Should not back off on slow responses while the limit is barely used")
+    void testNoDecreaseWithoutQueueing() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 100, 2.0, Duration.ZERO);
+        limiter.tryAcquire(Priority.READ);
+        limiter.release(CACHE_HIT, ENDPOINT);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(Priority.READ);
+            limiter.release(SLOW, ENDPOINT);
+        }
+
+        assertEquals(20, limiter.limit());
+    }
+
+    @Test
+    @DisplayName("Should not adapt to unsampled calls")
+    void testUnsampledRelease() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 10, 2.0, Duration.ZERO);
+        limiter.tryAcquire(Priority.READ);
+        limiter.release(FAST, ENDPOINT);
+        int before = limiter.limit();
+
+        limiter.tryAcquire(Priority.READ);
+        limiter.release(SLOW * 100, null);
+
+        assertEquals(before, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("Should admit waiting reads before waiting writes")
+    void testReadsBeforeWrites() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 2, 2, 2.0, Duration.ofSeconds(5));
+        assertTrue(limiter.tryAcquire(Priority.WRITE));
+        assertTrue(limiter.tryAcquire(Priority.WRITE));
+        List<Priority> admitted = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+                assertTrue(limiter.tryAcquire(Priority.WRITE));
+                admitted.add(Priority.WRITE);
+            }, executor);
+            awaitWaiting(limiter, Priority.WRITE);
+            CompletableFuture<Void> read = CompletableFuture.runAsync(() -> {
+                assertTrue(limiter.tryAcquire(Priority.READ));
+                admitted.add(Priority.READ);
+            }, executor);
+            awaitWaiting(limiter, Priority.READ);
+
+            limiter.release(FAST, null);
+            read.get(5, TimeUnit.SECONDS);
+            assertFalse(write.isDone());
+
+            limiter.release(FAST, null);
+            write.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(Priority.READ, Priority.WRITE), admitted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a waiting caller after max-wait")
+    void testRejectsAfterMaxWait() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 2.0, Duration.ofMillis(20));
+        assertTrue(limiter.tryAcquire(Priority.READ));
+
+        assertFalse(limiter.tryAcquire(Priority.READ));
+        assertEquals(0, limiter.waiting(Priority.READ));
+        assertEquals(1, limiter.rejections(Priority.READ));
+    }
+
+    private static void awaitWaiting(AdaptiveLimiter limiter, Priority priority) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.waiting(priority) == 0) {
+            assertTrue(System.nanoTime() < deadline, "caller never started waiting");
+            Thread.sleep(1);
+        }
+    }
+}
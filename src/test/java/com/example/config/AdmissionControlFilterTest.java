@@ -0,0 +1,86 @@
+package com.example.config;
+
+import org.junit.jupiter.api.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AdmissionControlFilter Unit Tests")
+class AdmissionControlFilterTest {
+
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 2.0, Duration.ZERO);
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(limiter, Duration.ofSeconds(2));
+
+    @Test
+    @DisplayName("Should pass admitted requests through and give the slot back")
+    void testAdmitted() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/1"), response, (req, res) -> calls.incrementAndGet());
+
+        assertEquals(1, calls.get());
+        assertEquals(200, response.getStatus());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("Should shed requests over the limit with 503 and Retry-After")
+    void testShed() throws Exception {
+        assertTrue(limiter.tryAcquire(AdaptiveLimiter.Priority.READ));
+        AtomicInteger calls = new AtomicInteger();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("PUT", "/api/users/1"), response, (req, res) -> calls.incrementAndGet());
+
+        assertEquals(0, calls.get());
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertEquals(1, limiter.rejections(AdaptiveLimiter.Priority.WRITE));
+    }
+
+    @Test
+    @DisplayName("Should not feed batch creates and imports into the limit")
+    void testBulkNotSampled() throws Exception {
+        AdaptiveLimiter growing = new AdaptiveLimiter(2, 1, 10, 2.0, Duration.ZERO);
+        AdmissionControlFilter bulkFilter = new AdmissionControlFilter(growing, Duration.ofSeconds(2));
+
+        bulkFilter.doFilter(new MockHttpServletRequest("POST", "/api/users/batch"), new MockHttpServletResponse(),
+                (req, res) -> { });
+        bulkFilter.doFilter(new MockHttpServletRequest("POST", "/api/users/import"), new MockHttpServletResponse(),
+                (req, res) -> { });
+        assertEquals(2, growing.limit());
+
+        bulkFilter.doFilter(new MockHttpServletRequest("POST", "/api/users"), new MockHttpServletResponse(),
+                (req, res) -> { });
+        assertEquals(3, growing.limit());
+    }
+
+    @Test
+    @DisplayName("Should key latency samples by method and route pattern")
+    void testEndpointOf() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/users/{id}");
+
+        assertEquals("GET /api/users/{id}", AdmissionControlFilter.endpointOf(request));
+        assertEquals("GET unmatched", AdmissionControlFilter.endpointOf(new MockHttpServletRequest("GET", "/nowhere")));
+    }
+
+    @Test
+    @DisplayName("Should treat GET and POST lookups as reads and other writes as writes")
+    void testPriority() {
+        assertEquals(AdaptiveLimiter.Priority.READ,
+                AdmissionControlFilter.priorityOf(new MockHttpServletRequest("GET", "/api/users")));
+        assertEquals(AdaptiveLimiter.Priority.READ,
+                AdmissionControlFilter.priorityOf(new MockHttpServletRequest("POST", "/api/users/lookup")));
+        assertEquals(AdaptiveLimiter.Priority.WRITE,
+                AdmissionControlFilter.priorityOf(new MockHttpServletRequest("POST", "/api/users")));
+        assertEquals(AdaptiveLimiter.Priority.WRITE,
+                AdmissionControlFilter.priorityOf(new MockHttpServletRequest("DELETE", "/api/users/1")));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.config;
+
+import com.example.service.ServiceOverloadedException;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConcurrencyLimiter Unit Tests")
+class ConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("Should release permit after section completes")
+    void testReleasesPermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, Duration.ofMillis(10));
+
+        assertEquals("first", limiter.call(() -> "first"));
+        assertEquals("second", limiter.call(() -> "second"));
+        assertEquals(0, limiter.inUse());
+    }
+
+    @Test
+    @DisplayName("Should release permit when section throws")
+    void testReleasesPermitOnFailure() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, Duration.ofMillis(10));
+
+        assertThrows(IllegalArgumentException.class, () -> limiter.call(() -> {
+            throw new IllegalArgumentException("boom");
+        }));
+        assertEquals(0, limiter.inUse());
+    }
+
+    @Test
+    @DisplayName("Should reject caller when all permits stay busy past the timeout")
+    void testRejectsWhenSaturated() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> limiter.call(() -> {
+                holding.countDown();
+                try {
+                    return finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            assertThrows(ServiceOverloadedException.class, () -> limiter.call(() -> "late"));
+        } finally {
+            finish.countDown();
+            executor.shutdown();
+        }
+    }
+}
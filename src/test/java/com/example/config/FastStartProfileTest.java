@@ -0,0 +1,54 @@
+package com.example.config;
+
+import com.example.entity.UserEntity;
+import com.example.service.UserService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The faststart profile: the Flyway migration must produce exactly the schema
+ * Hibernate validates against, and the lazily initialized context must work.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:faststart")
+@ActiveProfiles({"test", "faststart"})
+@DisplayName("Fast start profile Tests")
+class FastStartProfileTest {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    @DisplayName("Schema should come from the V1 migration and pass Hibernate validation")
+    void testSchemaFromMigration() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        assertEquals("1", jdbcTemplate.queryForObject(
+                "select \"version\" from \"flyway_schema_history\" where \"type\" = 'SQL' and \"success\" = true", String.class));
+        assertEquals("validate", context.getEnvironment().getProperty("spring.jpa.hibernate.ddl-auto"));
+    }
+
+    @Test
+    @DisplayName("Lazily initialized context should serve reads and writes")
+    void testLazyContextWorks() {
+        assertTrue(context.getBeanFactory().getBeanDefinition("userServiceImpl").isLazyInit());
+
+        UserEntity created = userService.createUser(new UserEntity("Jane Smith", "jane@example.com", 25));
+
+        assertEquals(0L, created.getVersion());
+        assertEquals("Jane Smith", userService.getUserById(created.getId()).orElseThrow().getName());
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.config;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Read/write splitting with two separate H2 databases standing in for the
+ * primary and the replica. Rows are inserted into one side only, so every
+ * assertion shows which database answered.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=" + ReadReplicaRoutingTest.REPLICA_SCHEMA,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.connection-timeout=250",
+        "app.users.cache.max-size=0"
+})
+@ActiveProfiles("test")
+@DisplayName("Read replica routing Tests")
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_SCHEMA = "create table if not exists users (id bigint primary key, "
+            + "name varchar(255) not null, email varchar(255) not null unique, age integer not null, "
+            + "version bigint default 0 not null)";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.update("delete from users");
+        if (!replicaDataSource.isClosed()) {
+            replica.update("delete from users");
+        }
+    }
+
+    @Test
+    @DisplayName("Reads should be served by the replica")
+    void testReadsGoToReplica() {
+        replica.update("insert into users (id, name, email, age, version) values (1000, 'Replica Only', 'replica@example.com', 40, 0)");
+
+        assertEquals("Replica Only", userService.getUserById(1000L).orElseThrow().getName());
+        assertTrue(userService.getUserByEmail("replica@example.com").isPresent());
+        assertEquals(1, userService.getAllUsers().size());
+    }
+
+    @Test
+    @DisplayName("Writes should go to the primary and be read back from it")
+    void testWritesGoToPrimaryAndAreReadBack() {
+        UserEntity created = userService.createUser(new UserEntity("Jane Smith", "jane@example.com", 25));
+
+        assertEquals(1, primary.queryForObject("select count(*) from users", Integer.class));
+        assertEquals(0, replica.queryForObject("select count(*) from users", Integer.class));
+        // recently written, so routed to the primary although the replica has not caught up
+        assertTrue(userService.getUserById(created.getId()).isPresent());
+        assertTrue(userService.getUserByEmail("jane@example.com").isPresent());
+        assertEquals(List.of(created.getId()),
+                userService.getUsersByIds(List.of(created.getId())).stream().map(UserDTO::getId).toList());
+        // list reads are allowed to lag
+        assertTrue(userService.getAllUsers().isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    @DisplayName("Reads should fall back to the primary when the replica is down")
+    void testFallbackToPrimary() {
+        primary.update("insert into users (id, name, email, age, version) values (2000, 'Primary Only', 'primary@example.com', 30, 0)");
+        replicaDataSource.close();
+
+        assertEquals("Primary Only", userService.getUserById(2000L).orElseThrow().getName());
+        assertEquals(1, userService.getAllUsers().size());
+    }
+}
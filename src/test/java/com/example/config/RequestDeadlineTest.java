@@ -0,0 +1,83 @@
+package com.example.config;
+
+import com.example.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Request deadlines on the data access side: transactions of expired requests
+ * are refused and statements get a query timeout ending with the deadline.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Request deadline Tests")
+class RequestDeadlineTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    @DisplayName("An expired request should not take a connection")
+    void testExpiredDeadlineRejectedBeforeConnection() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        RequestDeadline.start(0);
+
+        assertThrows(TransactionTimedOutException.class, () -> userService.getUserById(1L));
+        assertEquals(0, pool.getHikariPoolMXBean().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Statements should get a query timeout rounded up to whole seconds")
+    void testStatementTimeoutFollowsDeadline() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String sql = "select count(*) from users";
+
+        assertEquals(0, jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+                return statement.getQueryTimeout();
+            }
+        }));
+
+        RequestDeadline.start(1500);
+        assertEquals(2, jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setQueryTimeout(30);
+
+                return statement.getQueryTimeout();
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("A query outliving the deadline should be cancelled by the database")
+    void testLongQueryCancelled() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        RequestDeadline.start(200);
+        long start = System.nanoTime();
+
+        assertThrows(QueryTimeoutException.class, () -> jdbcTemplate.queryForObject(
+                "select count(*) from system_range(1, 1000000) a, system_range(1, 1000000) b", Long.class));
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+}
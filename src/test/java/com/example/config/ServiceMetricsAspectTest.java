@@ -0,0 +1,86 @@
+package com.example.config;
+
+import com.example.dto.UserDTO;
+import com.example.service.UserNotFoundException;
+import com.example.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ServiceMetricsAspect Unit Tests")
+class ServiceMetricsAspectTest {
+
+    private MeterRegistry registry;
+    private UserService target;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        target = mock(UserService.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new ServiceMetricsAspect(registry));
+        userService = factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Should tag Optional results as found or not_found")
+    void testFoundAndNotFound() {
+        when(target.getUserById(1L)).thenReturn(Optional.of(new UserDTO(1L, "John Doe", "john@example.com", 30)));
+        when(target.getUserById(2L)).thenReturn(Optional.empty());
+
+        userService.getUserById(1L);
+        userService.getUserById(2L);
+        userService.getUserById(2L);
+
+        assertEquals(1, count("getUserById", "found"));
+        assertEquals(2, count("getUserById", "not_found"));
+    }
+
+    @Test
+    @DisplayName("Should tag IllegalArgumentException as validation_error and rethrow")
+    void testValidationError() {
+        doThrow(new IllegalArgumentException("User ID must be valid")).when(target).deleteUser(-1L);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUser(-1L));
+        assertEquals(1, count("deleteUser", "validation_error"));
+    }
+
+    @Test
+    @DisplayName("Should tag UserNotFoundException as not_found, not validation_error")
+    void testWriteToMissingUser() {
+        doThrow(new UserNotFoundException(5L)).when(target).deleteUser(5L);
+
+        assertThrows(UserNotFoundException.class, () -> userService.deleteUser(5L));
+        assertEquals(1, count("deleteUser", "not_found"));
+        assertNull(registry.find(ServiceMetricsAspect.METRIC_NAME).tag("outcome", "validation_error").timer());
+    }
+
+    @Test
+    @DisplayName("Should tag other results as success and other exceptions as error")
+    void testSuccessAndError() {
+        when(target.userExists(1L)).thenReturn(true);
+        when(target.userExists(2L)).thenThrow(new IllegalStateException("connection lost"));
+
+        assertTrue(userService.userExists(1L));
+        assertThrows(IllegalStateException.class, () -> userService.userExists(2L));
+
+        assertEquals(1, count("userExists", "success"));
+        assertEquals(1, count("userExists", "error"));
+    }
+
+    private long count(String method, String outcome) {
+
+        return registry.get(ServiceMetricsAspect.METRIC_NAME)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.config;
+
+import com.example.dto.UserDTO;
+import com.example.entity.ShardedSequenceGenerator;
+import com.example.entity.UserEntity;
+import com.example.repository.EmailShardDirectory;
+import com.example.repository.UserShards;
+import com.example.service.BatchCreateResult;
+import com.example.service.UserCache;
+import com.example.service.UserService;
+import com.example.service.UserStatsReconciler;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sharding over three separate H2 databases. Shard 0 gets its schema from
+ * Hibernate like the single test database, shards 1 and 2 from Flyway.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "app.datasource.shards.1.jdbc-url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "app.datasource.shards.1.username=sa",
+        "app.datasource.shards.2.jdbc-url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "app.datasource.shards.2.username=sa"
+})
+@ActiveProfiles("test")
+@DisplayName("Sharding Tests")
+class ShardingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserStatsReconciler statsReconciler;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private EmailShardDirectory directory;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Autowired
+    private UserCache userCache;
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < shardRoutingDataSource.shardCount(); shard++) {
+            shards.add(new JdbcTemplate(shardRoutingDataSource.getShard(shard)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.forEach(shard -> shard.update("delete from users"));
+        shards.get(0).update("delete from user_email_shards");
+    }
+
+    @Test
+    @DisplayName("Users should be spread over the shards, with the shard encoded in the ID")
+    void testUsersAreSpreadByShard() {
+        List<UserEntity> created = createUsers(30);
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (UserEntity user : created) {
+            int shard = ShardedSequenceGenerator.shardOf(user.getId());
+            usedShards.add(shard);
+            assertEquals(1, shards.get(shard).queryForObject(
+                    "select count(*) from users where id = ?", Integer.class, user.getId()));
+            assertEquals(user.getEmail(), userService.getUserById(user.getId()).orElseThrow().getEmail());
+            assertEquals(user.getId(), userService.getUserByEmail(user.getEmail()).orElseThrow().getId());
+            assertEquals(shard, directory.find(user.getEmail()).orElseThrow().shard());
+        }
+        assertTrue(usedShards.size() > 1);
+        assertEquals(30, userService.getUsersByIds(created.stream().map(UserEntity::getId).toList()).size());
+        assertEquals(30, userService.getUsersByEmails(created.stream().map(UserEntity::getEmail).toList()).size());
+    }
+
+    @Test
+    @DisplayName("An email should stay unique across shards")
+    void testEmailUniqueAcrossShards() {
+        List<UserEntity> created = createUsers(30);
+        UserEntity first = created.get(0);
+        UserEntity other = created.stream()
+                .filter(user -> ShardedSequenceGenerator.shardOf(user.getId())
+                        != ShardedSequenceGenerator.shardOf(first.getId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(new UserEntity("Copy", first.getEmail(), 20)));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.updateUser(new UserEntity(other.getId(), "Other", first.getEmail(), 20)));
+        assertEquals(other.getEmail(), userService.getUserById(other.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    @DisplayName("Claiming a stale entry of the own shard should refresh it against takeovers")
+    void testClaimRefreshesStaleEntryOfOwnShard() {
+        String email = "moving@example.com";
+        // the shard a create of the email is placed on
+        assertTrue(userShards.claimEmail(email));
+        int createShard = directory.find(email).orElseThrow().shard();
+        directory.remove(email, createShard);
+        UserEntity user = createUsers(30).stream()
+                .filter(candidate -> ShardedSequenceGenerator.shardOf(candidate.getId()) != createShard)
+                .findFirst()
+                .orElseThrow();
+        int userShard = ShardedSequenceGenerator.shardOf(user.getId());
+        // left over from a failed write long ago
+        shards.get(0).update("insert into user_email_shards (email, shard, reserved_at) values (?, ?, ?)",
+                email, userShard, Timestamp.from(Instant.now().minus(Duration.ofHours(1))));
+
+        // the user's email change claims it, its update is not committed yet
+        assertTrue(userShards.claimEmail(email, user.getId()));
+
+        assertTrue(directory.find(email).orElseThrow().reservedAt().isAfter(Instant.now().minusSeconds(10)));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(new UserEntity("Other", email, 20)));
+        assertEquals(userShard, directory.find(email).orElseThrow().shard());
+    }
+
+    @Test
+    @DisplayName("Updating or deleting an uncached user should free its old email for other shards at once")
+    void testUncachedWritesFreeOldEmail() {
+        List<UserEntity> users = createUsers(2);
+        UserEntity updated = users.get(0);
+        UserEntity deleted = users.get(1);
+        String updatedEmail = emailCreatedOffShard(ShardedSequenceGenerator.shardOf(updated.getId()), "updated");
+        String deletedEmail = emailCreatedOffShard(ShardedSequenceGenerator.shardOf(deleted.getId()), "deleted");
+        userService.updateUser(new UserEntity(updated.getId(), "Updated", updatedEmail, 40));
+        userService.updateUser(new UserEntity(deleted.getId(), "Deleted", deletedEmail, 40));
+        userCache.clear();
+
+        userService.updateUser(new UserEntity(updated.getId(), "Updated", "settled@example.com", 40));
+        userService.deleteUser(deleted.getId());
+
+        assertTrue(directory.find(updatedEmail).isEmpty());
+        assertTrue(directory.find(deletedEmail).isEmpty());
+        UserEntity updatedAgain = userService.createUser(new UserEntity("Again", updatedEmail, 20));
+        UserEntity deletedAgain = userService.createUser(new UserEntity("Again", deletedEmail, 20));
+        assertNotEquals(ShardedSequenceGenerator.shardOf(updated.getId()),
+                ShardedSequenceGenerator.shardOf(updatedAgain.getId()));
+        assertNotEquals(ShardedSequenceGenerator.shardOf(deleted.getId()),
+                ShardedSequenceGenerator.shardOf(deletedAgain.getId()));
+    }
+
+    @Test
+    @DisplayName("A batch create should report the users of a failing shard and keep the others")
+    void testBatchCreateWithFailingShard() {
+        List<UserEntity> batch = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            batch.add(new UserEntity(i == 0 ? "Rejected" : "Batch " + i, "batch" + i + "@example.com", 30));
+        }
+        // every shard rejects the first user, which fails the whole insert of its shard
+        shards.forEach(shard -> shard.update("alter table users add constraint no_rejected check (name <> 'Rejected')"));
+        List<BatchCreateResult> results;
+        try {
+            results = userService.createUsers(batch);
+        } finally {
+            shards.forEach(shard -> shard.update("alter table users drop constraint no_rejected"));
+        }
+
+        Set<Integer> failedShards = new HashSet<>();
+        for (BatchCreateResult result : results) {
+            String email = batch.get(result.index()).getEmail();
+            if (result.isSuccess()) {
+                assertEquals(email, userService.getUserByEmail(email).orElseThrow().getEmail());
+            } else {
+                assertTrue(directory.find(email).isEmpty());
+                assertTrue(userService.getUserByEmail(email).isEmpty());
+                failedShards.add(ShardedSequenceGenerator.shardOf(batch.get(result.index()).getId()));
+            }
+        }
+        assertFalse(results.get(0).isSuccess());
+        assertEquals(1, failedShards.size());
+        assertTrue(results.stream().anyMatch(BatchCreateResult::isSuccess));
+    }
+
+    @Test
+    @DisplayName("All users and pages should come in ID order across shards")
+    void testListsInIdOrder() {
+        List<Long> ids = createUsers(30).stream().map(UserEntity::getId).sorted().toList();
+
+        assertEquals(ids, userService.getAllUsers().stream().map(UserDTO::getId).toList());
+
+        List<Long> paged = new ArrayList<>();
+        List<UserDTO> page = userService.getUsersAfter(null, 7);
+        while (!page.isEmpty()) {
+            page.forEach(user -> paged.add(user.getId()));
+            page = userService.getUsersAfter(page.get(page.size() - 1).getId(), 7);
+        }
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    @DisplayName("Statistics should count the users of all shards")
+    void testStatisticsOverAllShards() {
+        List<UserEntity> created = createUsers(30);
+        statsReconciler.reconcile();
+
+        assertEquals(30, userService.getStatistics().total());
+        assertEquals(created.stream().mapToInt(UserEntity::getAge).max().orElseThrow(),
+                userService.getStatistics().maxAge());
+    }
+
+    @Test
+    @DisplayName("Changing the email should move its directory entry, deleting should free it")
+    void testEmailChangeAndDelete() {
+        UserEntity user = createUsers(1).get(0);
+        int shard = ShardedSequenceGenerator.shardOf(user.getId());
+        // cached, so the service knows the old email
+        userService.getUserById(user.getId());
+
+        userService.updateUser(new UserEntity(user.getId(), "Renamed", "renamed@example.com", 31));
+
+        assertTrue(directory.find(user.getEmail()).isEmpty());
+        assertEquals(shard, directory.find("renamed@example.com").orElseThrow().shard());
+        assertTrue(userService.getUserByEmail(user.getEmail()).isEmpty());
+        assertEquals(user.getId(), userService.getUserByEmail("renamed@example.com").orElseThrow().getId());
+
+        userService.getUserById(user.getId());
+        userService.deleteUser(user.getId());
+
+        assertFalse(userService.userExists(user.getId()));
+        assertTrue(directory.find("renamed@example.com").isEmpty());
+        // the old email is free again, on whichever shard its hash picks
+        assertNotNull(userService.createUser(new UserEntity("Again", user.getEmail(), 40)).getId());
+    }
+
+    /**
+     * Returns an email that a create would place on another shard than the given one.
+     */
+    private String emailCreatedOffShard(int shard, String prefix) {
+        for (int i = 0; ; i++) {
+            String email = prefix + i + "@example.com";
+            assertTrue(userShards.claimEmail(email));
+            int createShard = directory.find(email).orElseThrow().shard();
+            directory.remove(email, createShard);
+            if (createShard != shard) {
+
+                return email;
+            }
+        }
+    }
+
+    private List<UserEntity> createUsers(int count) {
+        List<UserEntity> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            created.add(userService.createUser(new UserEntity("User " + i, "user" + i + "@example.com", 20 + i)));
+        }
+        created.sort(Comparator.comparing(UserEntity::getId));
+
+        return created;
+    }
+}
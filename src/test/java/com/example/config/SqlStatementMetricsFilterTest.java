@@ -0,0 +1,39 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SqlStatementMetricsFilter Unit Tests")
+class SqlStatementMetricsFilterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SqlStatementMetricsFilter filter = new SqlStatementMetricsFilter(counter, registry);
+
+    @Test
+    @DisplayName("Should record statements issued during the request under its URI pattern")
+    void testRecordsStatementsPerRequest() throws Exception {
+        counter.inspect("select stale from previous_request");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/users/{id}");
+            counter.inspect("select * from users where id=?");
+            counter.inspect("select * from users where id=?");
+        });
+
+        DistributionSummary summary = registry.get(SqlStatementMetricsFilter.METRIC_NAME)
+                .tag("method", "GET")
+                .tag("uri", "/api/users/{id}")
+                .summary();
+        assertEquals(1, summary.count());
+        assertEquals(2.0, summary.totalAmount());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.controller;
+
+import com.example.config.ReactiveUserServer;
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.service.ReactiveUserService;
+import com.example.service.UserCache;
+import com.example.service.UserService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The reactive user API on its own Netty port, over R2DBC H2 on the same
+ * in-memory database the JPA stack uses, so both stacks see each other's writes.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "app.reactive.enabled=true",
+        "app.reactive.port=0",
+        "app.reactive.r2dbc.url=r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1",
+        "app.reactive.r2dbc.username=sa",
+        "app.reactive.r2dbc.password=",
+        "app.users.stream-fetch-size=10"
+})
+@ActiveProfiles("test")
+@DisplayName("Reactive user API Tests")
+class ReactiveUserApiTest {
+
+    @Autowired
+    private ReactiveUserServer server;
+
+    @Autowired
+    private ReactiveUserService reactiveUserService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("delete from users");
+        userCache.clear();
+    }
+
+    @Test
+    @DisplayName("POST and GET /api/users/{id} - Should create and read back with ETag")
+    void testCreateAndGetUser() {
+        UserDTO created = client.post().uri("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTO(null, "Jane Smith", "jane@example.com", 25))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("ETag", "\"0\"")
+                .expectBody(UserDTO.class).returnResult().getResponseBody();
+
+        client.get().uri("/api/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"0\"")
+                .expectBody().jsonPath("$.email").isEqualTo("jane@example.com");
+        client.get().uri("/api/users/{id}", created.getId())
+                .header("If-None-Match", "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        client.get().uri("/api/users/email/{email}", "jane@example.com")
+                .exchange()
+                .expectStatus().isOk();
+        client.get().uri("/api/users/{id}", created.getId() + 1000)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Both stacks should share the table, ID sequence and validation rules")
+    void testStacksInteroperate() {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            ids.add(userService.createUser(new UserEntity("Mvc " + i, "mvc" + i + "@example.com", 30)).getId());
+            ids.add(reactiveUserService.createUser(new UserEntity("Reactive " + i, "reactive" + i + "@example.com", 30))
+                    .block().getId());
+        }
+
+        assertEquals(120, ids.size());
+        assertTrue(userService.getUserByEmail("reactive7@example.com").isPresent());
+        assertEquals("Mvc 7", reactiveUserService.getUserByEmail("mvc7@example.com").block().getName());
+
+        IllegalArgumentException duplicate = assertThrows(IllegalArgumentException.class, () -> reactiveUserService
+                .createUser(new UserEntity("Other", "mvc7@example.com", 40)).block());
+        assertEquals("User with email mvc7@example.com already exists", duplicate.getMessage());
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class, () -> reactiveUserService
+                .createUser(new UserEntity(" ", "blank@example.com", 40)).block());
+        assertEquals("User name cannot be empty", invalid.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> reactiveUserService.getUsersAfter(null, 0).blockFirst());
+    }
+
+    @Test
+    @DisplayName("GET /api/users - Should stream all users as JSON array or NDJSON, and pages")
+    void testListUsers() {
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            users.add(new UserEntity("User " + i, "user" + i + "@example.com", 20 + i));
+        }
+        userService.createUsers(users);
+
+        client.get().uri("/api/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBodyList(UserDTO.class).hasSize(25);
+        String ndjson = client.get().uri("/api/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertEquals(25, ndjson.lines().count());
+        client.get().uri("/api/users?limit=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.users.length()").isEqualTo(10)
+                .jsonPath("$.next").isNumber();
+
+        String csv = client.get().uri("/api/users/export?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith("text/csv")
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertEquals(26, csv.split("\r\n").length);
+        assertTrue(csv.startsWith("id,name,email,age,version\r\n"));
+    }
+
+    @Test
+    @DisplayName("PUT and DELETE /api/users/{id} - Should honour If-Match")
+    void testConditionalWrites() {
+        UserEntity user = userService.createUser(new UserEntity("John Doe", "john@example.com", 30));
+
+        client.put().uri("/api/users/{id}", user.getId())
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTO(null, "John Doe", "john@example.com", 31))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"");
+        client.put().uri("/api/users/{id}", user.getId())
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDTO(null, "John Doe", "john@example.com", 32))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        assertEquals(31, userService.getUserById(user.getId()).orElseThrow().getAge());
+
+        client.delete().uri("/api/users/{id}", user.getId())
+                .header("If-Match", "\"1\"")
+                .exchange()
+                .expectStatus().isNoContent();
+        assertFalse(userService.userExists(user.getId()));
+    }
+
+    @Test
+    @DisplayName("csvLine - Should quote fields like the MVC export")
+    void testCsvLine() {
+        assertEquals("1,\"Doe, \"\"J\"\"\",j@example.com,30,2\r\n",
+                ReactiveUserHandler.csvLine(new UserDTO(1L, "Doe, \"J\"", "j@example.com", 30, 2L)));
+    }
+}
@@ -1,21 +1,57 @@
 package com.example.controller;
 
 import com.example.dto.UserDTO;
+import com.example.dto.UserLookupRequestDTO;
 import com.example.entity.UserEntity;
+import com.example.config.RequestDeadline;
+import com.example.config.WireFormatConfig;
+import com.example.service.BatchCreateResult;
+import com.example.service.UserChangeFeed;
+import com.example.service.ExportFormat;
+import com.example.service.IdempotencyStore;
+import com.example.service.UserExportService;
+import com.example.service.UserImportReport;
+import com.example.service.UserImportService;
+import com.example.service.UserPatch;
 import com.example.service.UserService;
+import com.example.service.UserStatistics;
+import com.example.service.UserStatsUnavailableException;
+import com.example.service.VersionMismatchException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,6 +60,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * API tests for UserController using MockMvc
  */
 @WebMvcTest(UserController.class)
+@Import({WireFormatConfig.class, IdempotencyStore.class})
 @DisplayName("UserController API Tests")
 class UserControllerTest {
 
@@ -36,6 +73,15 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserExportService userExportService;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private UserChangeFeed userChangeFeed;
+
     private UserEntity testUser;
     private UserDTO testUserDTO;
 
@@ -61,10 +107,90 @@ class UserControllerTest {
         verify(userService, times(1)).createUser(any(UserEntity.class));
     }
 
+    @Test
+    @DisplayName("POST /api/users with Idempotency-Key - Should replay the stored 201 without creating again")
+    void testCreateUserIdempotent() throws Exception {
+        UserDTO createRequest = new UserDTO(null, "Jane Smith", "jane@example.com", 25);
+        testUser.setVersion(0L);
+        when(userService.createUser(any(UserEntity.class))).thenReturn(testUser);
+
+        for (String replayed : List.of("false", "true")) {
+            mockMvc.perform(post("/api/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Idempotency-Key", "3f1c-create-jane")
+                            .content(objectMapper.writeValueAsString(createRequest)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("ETag", "\"0\""))
+                    .andExpect(header().string("Idempotent-Replayed", replayed))
+                    .andExpect(jsonPath("$.id").value(1L));
+        }
+
+        verify(userService, times(1)).createUser(any(UserEntity.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/users with a reused Idempotency-Key - Should return 422")
+    void testCreateUserIdempotencyKeyReused() throws Exception {
+        when(userService.createUser(any(UserEntity.class))).thenReturn(testUser);
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "3f1c-reused")
+                        .content(objectMapper.writeValueAsString(new UserDTO(null, "Jane Smith", "jane@example.com", 25))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "3f1c-reused")
+                        .content(objectMapper.writeValueAsString(new UserDTO(null, "Other", "other@example.com", 30))))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(userService, times(1)).createUser(any(UserEntity.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/users - Should accept and return CBOR when negotiated")
+    void testCreateUserCbor() throws Exception {
+        CBORMapper cborMapper = new CBORMapper();
+        UserDTO createRequest = new UserDTO(null, "Jane Smith", "jane@example.com", 25);
+        when(userService.createUser(any(UserEntity.class))).thenReturn(testUser);
+
+        MvcResult result = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(createRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        UserDTO created = cborMapper.readValue(result.getResponse().getContentAsByteArray(), UserDTO.class);
+        assertEquals(testUserDTO, created);
+        verify(userService).createUser(argThat(user -> "jane@example.com".equals(user.getEmail())));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/batch - Should report result per item")
+    void testCreateUsersBatch() throws Exception {
+        List<UserDTO> request = List.of(
+                new UserDTO(null, "John Doe", "john@example.com", 30),
+                new UserDTO(null, "John Again", "john@example.com", 31));
+        when(userService.createUsers(anyList())).thenReturn(List.of(
+                BatchCreateResult.created(0, testUser),
+                BatchCreateResult.failed(1, "Duplicate email john@example.com in batch")));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].user.id").value(1L))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].error").value("Duplicate email john@example.com in batch"));
+    }
+
     @Test
     @DisplayName("GET /api/users/{id} - Should return user by ID")
     void testGetUserByIdSuccess() throws Exception {
-        when(userService.getUserById(1L)).thenReturn(Optional.of(testUser));
+        when(userService.getUserById(1L)).thenReturn(Optional.of(testUserDTO));
 
         mockMvc.perform(get("/api/users/1"))
                 .andExpect(status().isOk())
@@ -75,29 +201,348 @@ class UserControllerTest {
     }
 
     @Test
-    @DisplayName("GET /api/users - Should return all users")
+    @DisplayName("GET /api/users - Should stream all users")
+    @SuppressWarnings("unchecked")
     void testGetAllUsersSuccess() throws Exception {
-        UserEntity user2 = new UserEntity(2L, "Jane Smith", "jane@example.com", 25);
-        List<UserEntity> users = Arrays.asList(testUser, user2);
-        when(userService.getAllUsers()).thenReturn(users);
+        UserDTO user2 = new UserDTO(2L, "Jane Smith", "jane@example.com", 25);
+        doAnswer(invocation -> {
+            Consumer<UserDTO> action = invocation.getArgument(0);
+            action.accept(testUserDTO);
+            action.accept(user2);
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/users"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("John Doe"))
+                .andExpect(jsonPath("$[1].name").value("Jane Smith"));
+
+        verify(userService, times(1)).forEachUser(any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/users - Should stream Smile when Accept prefers it")
+    void testGetAllUsersSmile() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> action = invocation.getArgument(0);
+            action.accept(testUserDTO);
+            return null;
+        }).when(userService).forEachUser(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/users")
+                        .header("Accept", "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult dispatched = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        List<UserDTO> users = new SmileMapper().readValue(dispatched.getResponse().getContentAsByteArray(),
+                new TypeReference<List<UserDTO>>() {
+                });
+        assertEquals(List.of(testUserDTO), users);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/export - Should stream CSV as an attachment")
+    void testExportUsersCsv() throws Exception {
+        when(userExportService.export(eq(ExportFormat.CSV), any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("id,name,email,age,version\r\n1,John Doe,john@example.com,30,0\r\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.csv\""))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("1,John Doe,john@example.com")));
+    }
+
+    @Test
+    @DisplayName("POST /api/users/import - Should import an uploaded CSV and return the report")
+    void testImportUsers() throws Exception {
+        UserImportReport report = new UserImportReport(3, 2, 1, 0,
+                List.of(new UserImportReport.RowError(4, "Invalid age old")), 15);
+        when(userImportService.importUpload(any())).thenReturn(report);
+        MockMultipartFile file = new MockMultipartFile("file", "users.csv", "text/csv",
+                "name,email,age\n".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/api/users/import").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(3))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(4))
+                .andExpect(jsonPath("$.errors[0].error").value("Invalid age old"));
+    }
+
+    @Test
+    @DisplayName("GET /api/users?limit= - Should return a page with next cursor")
+    void testGetUsersPage() throws Exception {
+        UserDTO user2 = new UserDTO(2L, "Jane Smith", "jane@example.com", 25);
+        when(userService.getUsersAfter(eq(0L), anyInt())).thenReturn(Arrays.asList(testUserDTO, user2));
+
+        mockMvc.perform(get("/api/users").param("after", "0").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[1].name").value("Jane Smith"))
+                .andExpect(jsonPath("$.next").value(2L));
+    }
+
+    @Test
+    @DisplayName("GET /api/users?limit= - Should return null cursor on last page")
+    void testGetUsersLastPage() throws Exception {
+        when(userService.getUsersAfter(eq(1L), anyInt())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/users").param("after", "1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users").isEmpty())
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/users?ids= - Should return users in request order and missing IDs")
+    void testGetUsersByIds() throws Exception {
+        UserDTO user2 = new UserDTO(2L, "Jane Smith", "jane@example.com", 25);
+        when(userService.getUsersByIds(List.of(2L, 7L, 1L))).thenReturn(List.of(user2, testUserDTO));
+
+        mockMvc.perform(get("/api/users").param("ids", "2,7,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].id").value(2L))
+                .andExpect(jsonPath("$.users[1].id").value(1L))
+                .andExpect(jsonPath("$.missingIds[0]").value(7L))
+                .andExpect(jsonPath("$.missingEmails").isEmpty());
+    }
+
+    @Test
+    @DisplayName("GET /api/users?ids=&limit= - Should look up the IDs instead of paging")
+    void testGetUsersByIdsWithLimit() throws Exception {
+        when(userService.getUsersByIds(List.of(1L, 2L))).thenReturn(List.of(testUserDTO));
 
-        mockMvc.perform(get("/api/users"))
+        mockMvc.perform(get("/api/users").param("ids", "1,2").param("limit", "5"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].name").value("John Doe"))      // ← ИСПРАВЛЕНо
-                .andExpect(jsonPath("$[1].name").value("Jane Smith"));   // ← ИСПРАВЛЕНо
+                .andExpect(jsonPath("$.users[0].id").value(1L))
+                .andExpect(jsonPath("$.missingIds[0]").value(2L));
+        verify(userService, never()).getUsersAfter(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("POST /api/users/lookup - Should look up by IDs and emails")
+    void testLookupUsers() throws Exception {
+        UserDTO user2 = new UserDTO(2L, "Jane Smith", "jane@example.com", 25);
+        when(userService.getUsersByIds(List.of(1L))).thenReturn(List.of(testUserDTO));
+        when(userService.getUsersByEmails(List.of("jane@example.com", "john@example.com", "nobody@example.com")))
+                .thenReturn(List.of(user2, testUserDTO));
+        UserLookupRequestDTO request = new UserLookupRequestDTO(List.of(1L),
+                List.of("jane@example.com", "john@example.com", "nobody@example.com"));
 
-        verify(userService, times(1)).getAllUsers();
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users[0].id").value(1L))
+                .andExpect(jsonPath("$.users[1].id").value(2L))
+                .andExpect(jsonPath("$.missingIds").isEmpty())
+                .andExpect(jsonPath("$.missingEmails[0]").value("nobody@example.com"));
     }
 
+    @Test
+    @DisplayName("GET /api/users/stats - Should return statistics from the service")
+    void testGetStatistics() throws Exception {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        histogram.put("20-29", 1L);
+        histogram.put("30-39", 2L);
+        when(userService.getStatistics()).thenReturn(new UserStatistics(3, 25, 38, 33.0, histogram,
+                Instant.parse("2026-01-01T00:00:00Z")));
+
+        mockMvc.perform(get("/api/users/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.minAge").value(25))
+                .andExpect(jsonPath("$.meanAge").value(33.0))
+                .andExpect(jsonPath("$.ageHistogram['30-39']").value(2));
+    }
+
+    @Test
+    @DisplayName("GET /api/users/stats before statistics are loaded - Should return 503")
+    void testGetStatisticsNotLoaded() throws Exception {
+        when(userService.getStatistics()).thenThrow(new UserStatsUnavailableException("not loaded"));
+
+        mockMvc.perform(get("/api/users/stats"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/changes - Should open an event stream resuming after Last-Event-ID")
+    void testStreamChanges() throws Exception {
+        when(userChangeFeed.subscribe("feed-7")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/users/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "feed-7"))
+                .andExpect(request().asyncStarted());
+
+        verify(userChangeFeed).subscribe("feed-7");
+    }
 
     @Test
     @DisplayName("DELETE /api/users/{id} - Should delete user successfully")
     void testDeleteUserSuccess() throws Exception {
-        doNothing().when(userService).deleteUser(1L);
+        doNothing().when(userService).deleteUser(1L, null);
 
         mockMvc.perform(delete("/api/users/1"))
                 .andExpect(status().isNoContent());
 
-        verify(userService, times(1)).deleteUser(1L);
+        verify(userService, times(1)).deleteUser(1L, null);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} - Should return version as ETag")
+    void testGetUserByIdETag() throws Exception {
+        when(userService.getUserById(1L)).thenReturn(Optional.of(new UserDTO(1L, "John Doe", "john@example.com", 30, 3L)));
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").value(3L));
+
+        verify(userService, never()).getUserVersion(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} with matching If-None-Match - Should return 304 without loading the user")
+    void testGetUserByIdNotModified() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/api/users/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} with stale If-None-Match - Should return the user")
+    void testGetUserByIdModified() throws Exception {
+        when(userService.getUserVersion(1L)).thenReturn(Optional.of(4L));
+        when(userService.getUserById(1L)).thenReturn(Optional.of(new UserDTO(1L, "John Doe", "john@example.com", 30, 4L)));
+
+        mockMvc.perform(get("/api/users/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.name").value("John Doe"));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} with If-Match - Should update conditionally and return new ETag")
+    void testUpdateUserIfMatch() throws Exception {
+        when(userService.updateUser(argThat(user -> Long.valueOf(2L).equals(user.getVersion()))))
+                .thenAnswer(invocation -> {
+                    UserEntity user = invocation.getArgument(0);
+                    user.setVersion(3L);
+                    return user;
+                });
+
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserDTO(null, "John Doe", "john@example.com", 31))))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.age").value(31));
+    }
+
+    @Test
+    @DisplayName("PUT /api/users/{id} with stale If-Match - Should return 412")
+    void testUpdateUserVersionMismatch() throws Exception {
+        when(userService.updateUser(any(UserEntity.class)))
+                .thenThrow(new VersionMismatchException("User with ID 1 is no longer at version 2"));
+
+        mockMvc.perform(put("/api/users/1")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserDTO(null, "John Doe", "john@example.com", 31))))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/users/{id} with merge patch - Should pass only the present fields")
+    void testPatchUser() throws Exception {
+        when(userService.patchUser(1L, new UserPatch(null, null, 31), 2L))
+                .thenReturn(new UserDTO(1L, null, null, 31, 3L));
+
+        mockMvc.perform(patch("/api/users/1")
+                        .header("If-Match", "\"2\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"age\": 31}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"3\""));
+    }
+
+    @Test
+    @DisplayName("Merge patch - Should reject removed, unknown and mistyped members")
+    void testToUserPatch() throws Exception {
+        assertEquals(new UserPatch("Johnny", "johnny@example.com", null),
+                UserController.toUserPatch(objectMapper.readTree("{\"name\": \"Johnny\", \"email\": \"johnny@example.com\"}")));
+        assertThrows(IllegalArgumentException.class, () -> UserController.toUserPatch(objectMapper.readTree("{\"name\": null}")));
+        assertThrows(IllegalArgumentException.class, () -> UserController.toUserPatch(objectMapper.readTree("{\"version\": 3}")));
+        assertThrows(IllegalArgumentException.class, () -> UserController.toUserPatch(objectMapper.readTree("{\"age\": \"31\"}")));
+        assertThrows(IllegalArgumentException.class, () -> UserController.toUserPatch(objectMapper.readTree("[]")));
+    }
+
+    @Test
+    @DisplayName("DELETE /api/users/{id} with If-Match - Should pass expected version")
+    void testDeleteUserIfMatch() throws Exception {
+        mockMvc.perform(delete("/api/users/1").header("If-Match", "\"5\""))
+                .andExpect(status().isNoContent());
+
+        verify(userService, times(1)).deleteUser(1L, 5L);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} with expired deadline - Should return 504 without calling the service")
+    void testGetUserByIdDeadlineExpired() throws Exception {
+        mockMvc.perform(get("/api/users/1").header("X-Request-Timeout-Ms", "0"))
+                .andExpect(status().isGatewayTimeout());
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} with deadline - Should run the service under the shorter budget")
+    void testGetUserByIdDeadlinePropagated() throws Exception {
+        long[] remaining = new long[1];
+        when(userService.getUserById(1L)).thenAnswer(invocation -> {
+            remaining[0] = RequestDeadline.remainingMillis();
+            return Optional.of(testUserDTO);
+        });
+
+        mockMvc.perform(get("/api/users/1").header("X-Request-Timeout-Ms", "300"))
+                .andExpect(status().isOk());
+
+        assertTrue(remaining[0] > 0 && remaining[0] <= 300);
+        assertFalse(RequestDeadline.isSet());
+    }
+
+    @Test
+    @DisplayName("GET /api/users/{id} when the deadline runs out in the database - Should return 504")
+    void testGetUserByIdQueryTimeout() throws Exception {
+        when(userService.getUserById(1L))
+                .thenThrow(new TransactionTimedOutException("Request deadline exceeded before the transaction began"));
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isGatewayTimeout());
     }
 }
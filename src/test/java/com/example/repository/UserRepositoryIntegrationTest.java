@@ -1,12 +1,19 @@
 package com.example.repository;
 
+import com.example.dto.UserDTO;
 import com.example.entity.UserEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +29,9 @@ class UserRepositoryIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     @DisplayName("Should save user successfully")
     void testSaveUser() {
@@ -83,4 +93,97 @@ class UserRepositoryIntegrationTest {
         Optional<UserEntity> found = userRepository.findById(saved.getId());
         assertFalse(found.isPresent());
     }
+
+    @Test
+    @DisplayName("Should return keyset page after cursor")
+    void testFindPageAfter() {
+        UserEntity first = userRepository.save(new UserEntity("Ann Lee", "ann@example.com", 21));
+        UserEntity second = userRepository.save(new UserEntity("Ben Ray", "ben@example.com", 22));
+        UserEntity third = userRepository.save(new UserEntity("Cid Fox", "cid@example.com", 23));
+
+        List<UserDTO> page = userRepository.findDtoPageAfter(first.getId(), 1);
+
+        assertEquals(1, page.size());
+        assertEquals(second.getId(), page.get(0).getId());
+        assertTrue(userRepository.findDtoPageAfter(third.getId(), 1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should walk all users in ID order")
+    void testForEachUser() {
+        userRepository.save(new UserEntity("Ann Lee", "ann@example.com", 21));
+        userRepository.save(new UserEntity("Ben Ray", "ben@example.com", 22));
+
+        List<String> emails = new ArrayList<>();
+        userRepository.forEachUser(user -> emails.add(user.getEmail()));
+
+        assertEquals(List.of("ann@example.com", "ben@example.com"), emails);
+    }
+
+    @Test
+    @DisplayName("Should find users by email list")
+    void testFindByEmailIn() {
+        userRepository.save(new UserEntity("Ann Lee", "ann@example.com", 21));
+        userRepository.save(new UserEntity("Ben Ray", "ben@example.com", 22));
+
+        List<UserDTO> found = userRepository.findDtosByEmailIn(List.of("ben@example.com", "nobody@example.com"));
+
+        assertEquals(1, found.size());
+        assertEquals("Ben Ray", found.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Should read users as DTOs without managing entities")
+    void testDtoReadsSkipPersistenceContext() {
+        UserEntity saved = userRepository.saveAndFlush(new UserEntity("Ann Lee", "ann@example.com", 21));
+        entityManager.clear();
+
+        Optional<UserDTO> byId = userRepository.findDtoById(saved.getId());
+        Optional<UserDTO> byEmail = userRepository.findDtoByEmail("ann@example.com");
+        List<UserDTO> all = userRepository.findAllDtos();
+        List<UserDTO> byIds = userRepository.findDtosByIdIn(List.of(saved.getId()));
+
+        assertEquals(new UserDTO(saved.getId(), "Ann Lee", "ann@example.com", 21, 0L), byId.orElseThrow());
+        assertEquals(byId, byEmail);
+        assertEquals(List.of(byId.get()), all);
+        assertEquals(all, byIds);
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("Should bump version on update and apply conditional writes only at the expected version")
+    void testVersionedWrites() {
+        Long id = userRepository.saveAndFlush(new UserEntity("Ann Lee", "ann@example.com", 21)).getId();
+        assertEquals(Optional.of(0L), userRepository.findVersionById(id));
+
+        assertEquals(Optional.of(new UpdatedUser("ann@example.com", 1L)),
+                userRepository.updateUser(id, null, "Ann Lee", "ann.lee@example.com", 22));
+        assertTrue(userRepository.updateUser(id, 0L, "Ann Lee", "ann@example.com", 23).isEmpty());
+        assertEquals(Optional.of(new UpdatedUser("ann.lee@example.com", 2L)),
+                userRepository.updateUser(id, 1L, "Ann Lee", "ann@example.com", 23));
+        assertEquals(Optional.of(new UpdatedUser("ann@example.com", 3L)), userRepository.patchUser(id, null, null, null, 24));
+        assertTrue(userRepository.patchUser(id + 1000, null, "Nobody", null, null).isEmpty());
+        assertEquals(Optional.of(3L), userRepository.findVersionById(id));
+        entityManager.clear();
+        assertEquals(24, userRepository.findById(id).orElseThrow().getAge());
+        assertTrue(userRepository.deleteUser(id, 2L).isEmpty());
+        assertEquals(Optional.of("ann@example.com"), userRepository.deleteUser(id, 3L));
+        assertTrue(userRepository.deleteUser(id, null).isEmpty());
+        assertTrue(userRepository.findVersionById(id).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should count users per age")
+    void testCountUsersByAge() {
+        userRepository.saveAll(List.of(new UserEntity("Ann Lee", "ann@example.com", 21),
+                new UserEntity("Bob Ray", "bob@example.com", 21),
+                new UserEntity("Cy Long", "cy@example.com", 64)));
+
+        Map<Integer, Long> counts = new HashMap<>();
+        userRepository.countUsersByAge().forEach(row -> counts.put(row.getAge(), row.getUsers()));
+
+        assertEquals(2L, counts.get(21));
+        assertEquals(1L, counts.get(64));
+        assertEquals(2, counts.size());
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.service;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EmailIndex Unit Tests")
+class EmailIndexTest {
+
+    private EmailIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EmailIndex(true);
+    }
+
+    @Test
+    @DisplayName("Should report everything as possibly present until ready")
+    void testNotReady() {
+        assertTrue(index.mightContain("anyone@example.com"));
+
+        index.markReady();
+
+        assertFalse(index.mightContain("anyone@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should keep all emails across resizes")
+    void testAddAndResize() {
+        index.markReady();
+        for (int i = 0; i < 10_000; i++) {
+            index.add("user" + i + "@example.com");
+        }
+
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(index.mightContain("user" + i + "@example.com"));
+        }
+        assertFalse(index.mightContain("user10000@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should keep remaining emails reachable after removals")
+    void testRemove() {
+        index.markReady();
+        for (int i = 0; i < 5_000; i++) {
+            index.add("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 5_000; i += 2) {
+            index.remove("user" + i + "@example.com");
+        }
+
+        assertEquals(2_500, index.size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i % 2 == 1, index.mightContain("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should never report absent when disabled")
+    void testDisabled() {
+        EmailIndex disabled = new EmailIndex(false);
+        disabled.markReady();
+
+        assertTrue(disabled.mightContain("anyone@example.com"));
+    }
+}
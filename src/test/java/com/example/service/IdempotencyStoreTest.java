@@ -0,0 +1,170 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IdempotencyStore Unit Tests")
+class IdempotencyStoreTest {
+
+    private static final UserDTO REQUEST = new UserDTO(null, "Ann Lee", "ann@example.com", 21);
+
+    private MutableClock clock;
+    private IdempotencyStore store;
+    private AtomicInteger creations;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        store = new IdempotencyStore(2, Duration.ofHours(1), Duration.ofSeconds(5), clock);
+        creations = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should replay the stored result without creating again")
+    void testReplay() {
+        IdempotencyStore.Outcome first = store.execute("key-1", REQUEST, this::create);
+        IdempotencyStore.Outcome retry = store.execute("key-1", REQUEST, this::create);
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.user(), retry.user());
+        assertEquals(1, creations.get());
+        assertEquals(new IdempotencyStore.Stats(1, 1, 1), store.stats());
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void testKeyReused() {
+        store.execute("key-1", REQUEST, this::create);
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.execute("key-1",
+                new UserDTO(null, "Bob Ray", "bob@example.com", 22), this::create));
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    @DisplayName("Should run again after the TTL or once the key was evicted")
+    void testExpiryAndEviction() {
+        store.execute("key-1", REQUEST, this::create);
+        clock.advance(Duration.ofHours(2));
+        assertFalse(store.execute("key-1", REQUEST, this::create).replayed());
+
+        store.execute("key-2", REQUEST, this::create);
+        store.execute("key-3", REQUEST, this::create);
+        assertFalse(store.execute("key-1", REQUEST, this::create).replayed());
+        assertEquals(5, creations.get());
+    }
+
+    @Test
+    @DisplayName("Should not remember failures")
+    void testFailureNotStored() {
+        assertThrows(IllegalStateException.class, () -> store.execute("key-1", REQUEST, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertFalse(store.execute("key-1", REQUEST, this::create).replayed());
+    }
+
+    @Test
+    @DisplayName("Should let a concurrent duplicate wait for the original and share its result")
+    void testConcurrentDuplicate() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<IdempotencyStore.Outcome> original = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", REQUEST, () -> {
+                    started.countDown();
+                    await(release);
+
+                    return create();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<IdempotencyStore.Outcome> duplicate = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", REQUEST, this::create));
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS).replayed());
+        assertEquals(original.get(5, TimeUnit.SECONDS).user(), duplicate.get().user());
+        assertEquals(1, creations.get());
+    }
+
+    @Test
+    @DisplayName("Should give up waiting for a slow original with a conflict")
+    void testWaitTimeout() throws Exception {
+        IdempotencyStore impatient = new IdempotencyStore(2, Duration.ofHours(1), Duration.ofMillis(50), clock);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<IdempotencyStore.Outcome> original = CompletableFuture.supplyAsync(() ->
+                impatient.execute("key-1", REQUEST, () -> {
+                    started.countDown();
+                    await(release);
+
+                    return create();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IdempotencyKeyInUseException.class, () -> impatient.execute("key-1", REQUEST, this::create));
+        release.countDown();
+        assertFalse(original.get(5, TimeUnit.SECONDS).replayed());
+    }
+
+    @Test
+    @DisplayName("Should reject blank and overlong keys")
+    void testInvalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> store.execute(" ", REQUEST, this::create));
+        assertThrows(IllegalArgumentException.class, () -> store.execute(
+                "k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), REQUEST, this::create));
+    }
+
+    private UserDTO create() {
+        int id = creations.incrementAndGet();
+
+        return new UserDTO((long) id, "Ann Lee", "ann@example.com", 21, 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.service;
+
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SingleFlight Unit Tests")
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 8;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should run loader once for concurrent calls with the same key")
+    void testCollapsesConcurrentCalls() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            loads.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            return "user-1";
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> flight.execute(1L, () -> {
+                loads.incrementAndGet();
+                return "unexpected";
+            })));
+        }
+        waitUntilCollapsed(flight, FOLLOWERS);
+        release.countDown();
+
+        assertEquals("user-1", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> follower : followers) {
+            assertEquals("user-1", follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(new SingleFlight.Stats(1, FOLLOWERS, 0, 0), flight.stats());
+    }
+
+    @Test
+    @DisplayName("Should propagate leader exception to followers")
+    void testPropagatesErrors() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalArgumentException("db down");
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> flight.execute(1L, () -> "unexpected"));
+        waitUntilCollapsed(flight, 1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, leaderError.getCause());
+        assertInstanceOf(IllegalArgumentException.class, followerError.getCause());
+    }
+
+    @Test
+    @DisplayName("Should let follower run its own lookup after timeout")
+    void testFollowerTimeout() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofMillis(50), UnaryOperator.identity());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> flight.execute(1L, () -> {
+            leaderStarted.countDown();
+            await(release);
+            return "slow";
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertEquals("fallback", flight.execute(1L, () -> "fallback"));
+            assertEquals(1, flight.stats().timeouts());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should let followers run their own lookup after a leader-specific failure")
+    void testFollowerRetriesLeaderSpecificFailure() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5), UnaryOperator.identity(),
+                failure -> failure instanceof IllegalStateException);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("leader deadline exceeded");
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> flight.execute(1L, () -> "own"));
+        waitUntilCollapsed(flight, 1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+        assertEquals("own", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, flight.stats().retries());
+    }
+
+    @Test
+    @DisplayName("Should not coalesce sequential calls")
+    void testSequentialCallsRunSeparately() {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(1), UnaryOperator.identity());
+
+        flight.execute(1L, () -> "first");
+        flight.execute(1L, () -> "second");
+
+        assertEquals(new SingleFlight.Stats(2, 0, 0, 0), flight.stats());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntilCollapsed(SingleFlight<?, ?> flight, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.stats().collapsed() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.service;
+
+import com.example.entity.UserEntity;
+import com.example.repository.UserRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares insert throughput of the single-row create path
+ * with the batch create path against H2.
+ *
+ * Excluded from the default build, run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchdb;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.example=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("User insert throughput benchmark")
+class UserBatchInsertBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Batch create should outperform single-row create")
+    void compareSingleRowAndBatchInserts() {
+        // warm up both paths so the comparison is not dominated by class loading and JIT
+        runSingleRow("warmup-single", 2_000);
+        runBatch("warmup-batch", 2_000);
+        userRepository.deleteAllInBatch();
+
+        double singleRowRate = runSingleRow("single", ROWS);
+        double batchRate = runBatch("batch", ROWS);
+
+        System.out.printf("single-row create: %,.0f rows/sec%n", singleRowRate);
+        System.out.printf("batch create:      %,.0f rows/sec (%.1fx)%n", batchRate, batchRate / singleRowRate);
+        assertEquals(2L * ROWS, userRepository.count());
+    }
+
+    private double runSingleRow(String prefix, int rows) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            userService.createUser(newUser(prefix, i));
+        }
+
+        return rate(rows, start);
+    }
+
+    private double runBatch(String prefix, int rows) {
+        long start = System.nanoTime();
+        for (int from = 0; from < rows; from += BATCH_SIZE) {
+            List<UserEntity> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, rows); i++) {
+                batch.add(newUser(prefix, i));
+            }
+            userService.createUsers(batch).forEach(result -> assertTrue(result.isSuccess(), result.error()));
+        }
+
+        return rate(rows, start);
+    }
+
+    private static UserEntity newUser(String prefix, int i) {
+
+        return new UserEntity("User " + i, prefix + "-" + i + "@example.com", 20 + i % 50);
+    }
+
+    private static double rate(int rows, long startNanos) {
+
+        return rows / ((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+}
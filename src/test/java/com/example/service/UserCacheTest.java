@@ -0,0 +1,157 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import org.junit.jupiter.api.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UserCache Unit Tests")
+class UserCacheTest {
+
+    private MutableClock clock;
+    private UserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        cache = new UserCache(2, Duration.ofSeconds(60), Duration.ofSeconds(5), clock);
+    }
+
+    @Test
+    @DisplayName("Should answer email lookup from entry loaded by ID")
+    void testSharedEntry() {
+        cache.getById(1L, id -> Optional.of(user(1L, "a@example.com")));
+
+        Optional<UserDTO> found = cache.getByEmail("a@example.com", email -> fail("should not load"));
+
+        assertEquals(1L, found.orElseThrow().getId());
+        assertEquals(new UserCache.Stats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after TTL")
+    void testTtl() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getById(1L, id -> { loads.incrementAndGet(); return Optional.of(user(1L, "a@example.com")); });
+
+        clock.advance(Duration.ofSeconds(61));
+        cache.getById(1L, id -> { loads.incrementAndGet(); return Optional.of(user(1L, "a@example.com")); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should expire negative entries after negative TTL")
+    void testNegativeTtl() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getByEmail("x@example.com", email -> { loads.incrementAndGet(); return Optional.empty(); });
+        cache.getByEmail("x@example.com", email -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        clock.advance(Duration.ofSeconds(6));
+        cache.getByEmail("x@example.com", email -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entry with its email alias")
+    void testLruEviction() {
+        cache.put(user(1L, "a@example.com"));
+        cache.put(user(2L, "b@example.com"));
+        cache.getById(1L, id -> fail("should not load"));
+
+        cache.put(user(3L, "c@example.com"));
+
+        assertTrue(cache.peek(2L).isEmpty());
+        assertTrue(cache.peek(1L).isPresent());
+        assertEquals(Optional.empty(), cache.getByEmail("b@example.com", email -> Optional.empty()));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("Should stay within its size and keep email aliases when spread over lock stripes")
+    void testStripedCapacity() {
+        UserCache striped = new UserCache(1000, Duration.ofSeconds(60), Duration.ofSeconds(5), clock);
+        for (long id = 1; id <= 5000; id++) {
+            striped.put(user(id, id + "@example.com"));
+        }
+
+        assertTrue(striped.stats().size() <= 1000);
+        assertTrue(striped.stats().size() > 900);
+        assertEquals(5000 - striped.stats().size(), striped.stats().evictions());
+        for (long id = 1; id <= 5000; id++) {
+            long expected = id;
+            Optional<UserDTO> byEmail = striped.getByEmail(id + "@example.com", email -> Optional.empty());
+            assertEquals(striped.peek(id).isPresent(), byEmail.isPresent());
+            byEmail.ifPresent(found -> assertEquals(expected, found.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop old email alias when user is evicted by ID")
+    void testEvictById() {
+        cache.put(user(1L, "old@example.com"));
+
+        cache.evictById(1L);
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.getByEmail("old@example.com", email -> { loads.incrementAndGet(); return Optional.empty(); });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache value loaded concurrently with an invalidation")
+    void testStaleFillDiscarded() {
+        cache.getById(1L, id -> {
+            cache.evictById(1L);
+            return Optional.of(user(1L, "a@example.com"));
+        });
+
+        assertTrue(cache.peek(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return copies that do not affect cached state")
+    void testCopies() {
+        cache.put(user(1L, "a@example.com"));
+
+        cache.peek(1L).orElseThrow().setName("Changed");
+
+        assertEquals("User", cache.peek(1L).orElseThrow().getName());
+    }
+
+    private static UserDTO user(Long id, String email) {
+
+        return new UserDTO(id, "User", email, 30);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.service;
+
+import com.example.dto.UserChangeDTO;
+import com.example.dto.UserDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UserChangeFeed Unit Tests")
+class UserChangeFeedTest {
+
+    private UserChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        feed = new UserChangeFeed(4, 10, 2, Duration.ofMinutes(1), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    @DisplayName("Should stream changes published after subscribing, in order")
+    void testLiveChanges() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(null, emitter);
+
+        feed.onUserChanged(UserChangedEvent.created(new UserDTO(1L, "Ann Lee", "ann@example.com", 21, 0L)));
+        feed.onUserChanged(UserChangedEvent.deleted(1L));
+
+        Event created = emitter.next();
+        Event deleted = emitter.next();
+        assertEquals("created", created.name());
+        assertEquals("ann@example.com", created.change().getUser().getEmail());
+        assertEquals("deleted", deleted.name());
+        assertEquals(2, deleted.change().getSequence());
+        assertNull(deleted.change().getUser());
+    }
+
+    @Test
+    @DisplayName("Should stream a patch as its changed fields")
+    void testPatchedChange() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(null, emitter);
+
+        feed.onUserChanged(UserChangedEvent.patched(1L, null, Map.of("age", 31)));
+
+        Event patched = emitter.next();
+        assertEquals("patched", patched.name());
+        assertEquals(1L, patched.change().getUserId());
+        assertNull(patched.change().getUser());
+        assertEquals(Map.of("age", 31), patched.change().getChanges());
+    }
+
+    @Test
+    @DisplayName("Should resume after Last-Event-ID while the events are buffered")
+    void testResume() throws Exception {
+        RecordingEmitter first = new RecordingEmitter();
+        feed.subscribe(null, first);
+        feed.onUserChanged(UserChangedEvent.created(new UserDTO(1L, "Ann Lee", "ann@example.com", 21, 0L)));
+        String lastEventId = first.next().id();
+        feed.onUserChanged(UserChangedEvent.created(new UserDTO(2L, "Bob Ray", "bob@example.com", 22, 0L)));
+        feed.onUserChanged(UserChangedEvent.deleted(1L));
+
+        RecordingEmitter resumed = new RecordingEmitter();
+        feed.subscribe(lastEventId, resumed);
+
+        assertEquals(2L, resumed.next().change().getUserId());
+        assertEquals("deleted", resumed.next().name());
+    }
+
+    @Test
+    @DisplayName("Should ask to resync when Last-Event-ID is unknown or no longer buffered")
+    void testResyncOnReconnect() throws Exception {
+        RecordingEmitter first = new RecordingEmitter();
+        feed.subscribe(null, first);
+        feed.onUserChanged(UserChangedEvent.deleted(1L));
+        String lastEventId = first.next().id();
+        for (long id = 2; id <= 6; id++) {
+            feed.onUserChanged(UserChangedEvent.deleted(id));
+        }
+
+        RecordingEmitter tooOld = new RecordingEmitter();
+        feed.subscribe(lastEventId, tooOld);
+        RecordingEmitter foreign = new RecordingEmitter();
+        feed.subscribe("otherfeed-3", foreign);
+        feed.onUserChanged(UserChangedEvent.deleted(7L));
+
+        assertEquals(UserChangeFeed.RESYNC_EVENT, tooOld.next().name());
+        assertEquals(7L, tooOld.next().change().getUserId());
+        assertEquals(UserChangeFeed.RESYNC_EVENT, foreign.next().name());
+        assertEquals(7L, foreign.next().change().getUserId());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber that falls behind the ring without blocking publishers")
+    void testSlowSubscriberDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        feed.subscribe(null, slow);
+
+        long start = System.nanoTime();
+        for (long id = 1; id <= 20; id++) {
+            feed.onUserChanged(UserChangedEvent.deleted(id));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+
+        Event last = slow.next();
+        while (!last.name().equals(UserChangeFeed.RESYNC_EVENT)) {
+            last = slow.next();
+        }
+        assertTrue(last.id().endsWith("-20"));
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber whose send blocks and keep delivering to the others")
+    void testBlockedSendDropped() throws Exception {
+        UserChangeFeed oneSender = new UserChangeFeed(100, 10, 1, Duration.ofMinutes(1), Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            RecordingEmitter stalled = new RecordingEmitter(release);
+            oneSender.subscribe(null, stalled);
+            oneSender.onUserChanged(UserChangedEvent.deleted(1L));
+            RecordingEmitter healthy = new RecordingEmitter();
+            oneSender.subscribe(null, healthy);
+
+            oneSender.onUserChanged(UserChangedEvent.deleted(2L));
+
+            // the only sender thread is blocked by the stalled client
+            assertEquals(2L, healthy.next().change().getUserId());
+            assertEquals(1, oneSender.subscriberCount());
+            release.countDown();
+            assertTrue(stalled.failed.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            oneSender.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse subscribers beyond the limit")
+    void testMaxSubscribers() {
+        for (int i = 0; i < 10; i++) {
+            feed.subscribe(null, new RecordingEmitter());
+        }
+
+        assertThrows(ServiceOverloadedException.class, () -> feed.subscribe(null, new RecordingEmitter()));
+    }
+
+    private record Event(String id, String name, UserChangeDTO change) {
+    }
+
+    /**
+     * Captures sent events instead of writing them to a response.
+     * The first send waits for the given latch, to simulate a slow client.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private final CountDownLatch firstSend;
+
+        RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingEmitter(CountDownLatch firstSend) {
+            this.firstSend = firstSend;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                firstSend.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            List<String> lines = new ArrayList<>();
+            UserChangeDTO change = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    lines.addAll(List.of(text.split("\n")));
+                } else if (part.getData() instanceof UserChangeDTO dto) {
+                    change = dto;
+                }
+            }
+            events.add(new Event(field(lines, "id:"), field(lines, "event:"), change));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failed.countDown();
+            super.completeWithError(ex);
+        }
+
+        Event next() throws InterruptedException {
+            Event event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event within 5 seconds");
+
+            return event;
+        }
+
+        private static String field(List<String> lines, String prefix) {
+
+            return lines.stream().filter(line -> line.startsWith(prefix))
+                    .map(line -> line.substring(prefix.length()))
+                    .findFirst().orElse(null);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.service;
+
+import com.example.entity.UserEntity;
+import com.example.repository.UserExportRepository;
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export tests against H2: output format, escaping and aborted writes.
+ */
+@DataJpaTest(properties = "app.users.export.fetch-size=2")
+@Import({UserExportService.class, UserExportRepository.class, UserShards.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@ActiveProfiles("test")
+@DisplayName("UserExportService Tests")
+class UserExportServiceTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long firstId;
+    private Long secondId;
+
+    @BeforeEach
+    void setUp() {
+        firstId = userRepository.saveAndFlush(new UserEntity("Doe, John \"JD\"", "john@example.com", 30)).getId();
+        secondId = userRepository.saveAndFlush(new UserEntity("Ann Lee", "ann@example.com", 21)).getId();
+    }
+
+    @Test
+    @DisplayName("Should export CSV with header and quoted fields")
+    void testExportCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = userExportService.export(ExportFormat.CSV, out);
+
+        assertEquals(2, rows);
+        assertEquals("id,name,email,age,version\r\n"
+                        + firstId + ",\"Doe, John \"\"JD\"\"\",john@example.com,30,0\r\n"
+                        + secondId + ",Ann Lee,ann@example.com,21,0\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should export one JSON object per line")
+    void testExportNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userExportService.export(ExportFormat.NDJSON, out);
+
+        assertEquals("{\"id\":" + firstId + ",\"name\":\"Doe, John \\\"JD\\\"\",\"email\":\"john@example.com\",\"age\":30,\"version\":0}\n"
+                        + "{\"id\":" + secondId + ",\"name\":\"Ann Lee\",\"email\":\"ann@example.com\",\"age\":21,\"version\":0}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should stop and rethrow when the client goes away")
+    void testExportClientDisconnect() {
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> userExportService.export(ExportFormat.NDJSON, disconnected));
+        assertEquals("Broken pipe", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown format names")
+    void testUnknownFormat() {
+        assertEquals(ExportFormat.NDJSON, ExportFormat.fromParam("NDJSON"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromParam("xml"));
+    }
+}
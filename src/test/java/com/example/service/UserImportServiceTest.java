@@ -0,0 +1,195 @@
+package com.example.service;
+
+import com.example.entity.UserEntity;
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Import tests against H2 with a chunk size of 2, so every file spans several
+ * transactions. Not wrapped in a test transaction, chunks really commit.
+ */
+@DataJpaTest(properties = "app.users.import.chunk-size=2")
+@Import({UserImportService.class, UserCache.class, EmailIndex.class, UserStats.class, UserShards.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@DisplayName("UserImportService Tests")
+class UserImportServiceTest {
+
+    @TempDir
+    static Path importDir;
+
+    @DynamicPropertySource
+    static void importProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.users.import.dir", importDir::toString);
+    }
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailIndex emailIndex;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        userRepository.deleteAllInBatch();
+        try (var files = Files.list(importDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should import valid rows and report rejected ones by line")
+    void testImportUpload() throws IOException {
+        userRepository.saveAndFlush(new UserEntity("Taken", "taken@example.com", 40));
+        String csv = "id,name,email,age,version\r\n"
+                + "7,\"Doe, John\",john@example.com,30,0\r\n"
+                + "8,\"Multi\nLine\",multi@example.com,31,0\r\n"
+                + "9,Bad Age,bad@example.com,old,0\r\n"
+                + "\r\n"
+                + "10,,noname@example.com,20,0\r\n"
+                + "11,Again,john@example.com,22,0\r\n"
+                + "12,Taken Again,taken@example.com,23,0\r\n";
+
+        UserImportReport report = userImportService.importUpload(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(6, report.rowsRead());
+        assertEquals(2, report.imported());
+        assertEquals(4, report.failed());
+        assertEquals(0, report.resumedFromLine());
+        assertEquals(List.of(
+                new UserImportReport.RowError(5, "Invalid age old"),
+                new UserImportReport.RowError(7, "User name cannot be empty"),
+                new UserImportReport.RowError(8, "User with email john@example.com already exists"),
+                new UserImportReport.RowError(9, "User with email taken@example.com already exists")
+        ), report.errors());
+        assertEquals("Doe, John", userRepository.findByEmail("john@example.com").orElseThrow().getName());
+        assertEquals("Multi\nLine", userRepository.findByEmail("multi@example.com").orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate emails within one chunk")
+    void testDuplicateInChunk() throws IOException {
+        String csv = "name,email,age\nA,a@example.com,1\nB,a@example.com,2\n";
+
+        UserImportReport report = userImportService.importUpload(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new UserImportReport.RowError(3, "Duplicate email a@example.com in file")),
+                report.errors());
+    }
+
+    @Test
+    @DisplayName("Should report only the taken row of a chunk whose insert hit a stale email index")
+    void testStaleEmailIndex() throws IOException {
+        emailIndex.markReady();
+        // written behind the index's back, so the import skips the duplicate check for it
+        userRepository.saveAndFlush(new UserEntity("Behind", "behind@example.com", 40));
+        assertFalse(emailIndex.mightContain("behind@example.com"));
+        String csv = "name,email,age\nA,a@example.com,1\nB,behind@example.com,2\nC,c@example.com,3\n";
+
+        UserImportReport report = userImportService.importUpload(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(new UserImportReport.RowError(3, "User with email behind@example.com already exists")),
+                report.errors());
+        assertEquals("Behind", userRepository.findByEmail("behind@example.com").orElseThrow().getName());
+        assertTrue(userRepository.existsByEmail("a@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should resume from the last committed chunk after a failure")
+    void testResumeAfterFailure() throws IOException {
+        Path file = importDir.resolve("users.csv");
+        Files.writeString(file, "name,email,age\n"
+                + "A,a@example.com,1\nB,b@example.com,2\n"
+                + "C,c@example.com,3\nD,d@example.com,4\n"
+                + "E,e@example.com,5\n");
+        failSaveOf("c@example.com");
+
+        assertThrows(DataAccessResourceFailureException.class, () -> userImportService.importFromPath("users.csv"));
+        assertEquals(2, userRepository.count());
+        assertTrue(Files.exists(importDir.resolve("users.csv.checkpoint")));
+        reset(userRepository);
+
+        UserImportReport report = userImportService.importFromPath("users.csv");
+
+        assertEquals(4, report.resumedFromLine());
+        assertEquals(5, report.rowsRead());
+        assertEquals(5, report.imported());
+        assertEquals(0, report.failed());
+        assertEquals(5, userRepository.count());
+        assertFalse(Files.exists(importDir.resolve("users.csv.checkpoint")));
+    }
+
+    @Test
+    @DisplayName("Should not resume a file that changed since the checkpoint")
+    void testChangedFileNotResumed() throws IOException {
+        Path file = importDir.resolve("users.csv");
+        Files.writeString(file, "name,email,age\nA,a@example.com,1\nB,b@example.com,2\nC,c@example.com,3\n");
+        failSaveOf("c@example.com");
+        assertThrows(DataAccessResourceFailureException.class, () -> userImportService.importFromPath("users.csv"));
+
+        Files.writeString(file, "name,email,age\nX,x@example.com,1\n");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> userImportService.importFromPath("users.csv"));
+        assertTrue(e.getMessage().contains("has changed since the last checkpoint"));
+    }
+
+    @Test
+    @DisplayName("Should only read files inside the import directory")
+    void testPathOutsideImportDir() {
+        assertThrows(IllegalArgumentException.class, () -> userImportService.importFromPath("../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> userImportService.importFromPath("missing.csv"));
+    }
+
+    @Test
+    @DisplayName("Should reject files without the required columns")
+    void testMissingColumns() {
+        byte[] csv = "name,email\nA,a@example.com\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userImportService.importUpload(new ByteArrayInputStream(csv)));
+    }
+
+    /**
+     * Makes the insert of the chunk containing the email fail like a lost connection.
+     */
+    private void failSaveOf(String email) {
+        doThrow(new DataAccessResourceFailureException("Connection lost"))
+                .when(userRepository).saveAll(argThat((List<UserEntity> users) ->
+                        users.stream().anyMatch(user -> email.equals(user.getEmail()))));
+    }
+}
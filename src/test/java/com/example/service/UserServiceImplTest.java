@@ -1,19 +1,28 @@
 package com.example.service;
 
+import com.example.dto.UserDTO;
 import com.example.entity.UserEntity;
+import com.example.repository.UpdatedUser;
 import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -24,6 +33,27 @@ class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private EmailIndex emailIndex = new EmailIndex(true);
+
+    @Spy
+    private UserLookupCoalescer lookupCoalescer = new UserLookupCoalescer(Duration.ofSeconds(1));
+
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    @Spy
+    private RecentWrites recentWrites = new RecentWrites("", Duration.ofSeconds(5));
+
+    @Spy
+    private UserStats userStats = new UserStats();
+
+    @Spy
+    private UserShards userShards = UserShards.unsharded();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -41,13 +71,40 @@ class UserServiceImplTest {
     void testCreateUser() {
         UserEntity newUser = new UserEntity("John Doe", "john@example.com", 30);
         when(userRepository.existsByEmail("john@example.com")).thenReturn(false);
-        when(userRepository.save(any(UserEntity.class))).thenReturn(testUser);
+        when(userRepository.saveAndFlush(any(UserEntity.class))).thenReturn(testUser);
 
         UserEntity created = userService.createUser(newUser);
 
         assertNotNull(created);
         assertEquals(1L, created.getId());
-        verify(userRepository, times(1)).save(any());
+        verify(userRepository, times(1)).saveAndFlush(any());
+        verify(eventPublisher).publishEvent(UserChangedEvent.created(UserDTO.from(testUser)));
+    }
+
+    @Test
+    @DisplayName("Should skip duplicate check query when email index says absent")
+    void testCreateUserSkipsExistsQuery() {
+        emailIndex.markReady();
+        when(userRepository.saveAndFlush(any(UserEntity.class))).thenReturn(testUser);
+
+        userService.createUser(new UserEntity("John Doe", "john@example.com", 30));
+
+        verify(userRepository, never()).existsByEmail(anyString());
+        assertTrue(emailIndex.mightContain("john@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should translate unique constraint violation into already exists error")
+    void testCreateUserConstraintViolation() {
+        emailIndex.markReady();
+        when(userRepository.saveAndFlush(any(UserEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userRepository.existsByEmail("john@example.com")).thenReturn(true);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> userService.createUser(new UserEntity("John Doe", "john@example.com", 30)));
+
+        assertEquals("User with email john@example.com already exists", e.getMessage());
     }
 
     @Test
@@ -56,43 +113,305 @@ class UserServiceImplTest {
         assertThrows(IllegalArgumentException.class, () -> userService.createUser(null));
     }
 
+    @Test
+    @DisplayName("Should create valid users in batch and report failures per item")
+    void testCreateUsersBatch() {
+        UserEntity valid = new UserEntity("Ann Lee", "ann@example.com", 21);
+        UserEntity taken = new UserEntity("John Doe", "john@example.com", 30);
+        UserEntity repeated = new UserEntity("Ann Again", "ann@example.com", 22);
+        UserEntity invalid = new UserEntity("", "x@example.com", 40);
+        when(userRepository.findExistingEmails(anyList())).thenReturn(List.of("john@example.com"));
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<BatchCreateResult> results = userService.createUsers(Arrays.asList(valid, taken, repeated, invalid, null));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("User with email john@example.com already exists", results.get(1).error());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("User name cannot be empty", results.get(3).error());
+        assertEquals("User entity cannot be null", results.get(4).error());
+        verify(userRepository, times(1)).findExistingEmails(anyList());
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Should report only the taken email of a batch whose insert hit a stale email index")
+    void testCreateUsersBatchStaleIndex() {
+        emailIndex.markReady();
+        UserEntity valid = new UserEntity("Ann Lee", "ann@example.com", 21);
+        UserEntity taken = new UserEntity("John Doe", "john@example.com", 30);
+        when(userRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findExistingEmails(anyList())).thenReturn(List.of("john@example.com"));
+
+        List<BatchCreateResult> results = userService.createUsers(List.of(valid, taken));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("User with email john@example.com already exists", results.get(1).error());
+        verify(userRepository).findExistingEmails(List.of("ann@example.com", "john@example.com"));
+        verify(userRepository).saveAll(List.of(valid));
+        assertTrue(emailIndex.mightContain("john@example.com"));
+    }
+
     // ============= READ TESTS =============
 
     @Test
     @DisplayName("Should get user by ID successfully")
     void testGetUserById() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.of(UserDTO.from(testUser)));
 
-        Optional<UserEntity> found = userService.getUserById(1L);
+        Optional<UserDTO> found = userService.getUserById(1L);
 
         assertTrue(found.isPresent());
         assertEquals(testUser.getId(), found.get().getId());
     }
 
+    @Test
+    @DisplayName("Should serve repeated lookups by ID and email from cache")
+    void testGetUserCached() {
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.of(UserDTO.from(testUser)));
+
+        userService.getUserById(1L);
+        Optional<UserDTO> byId = userService.getUserById(1L);
+        Optional<UserDTO> byEmail = userService.getUserByEmail("john@example.com");
+
+        assertEquals("John Doe", byId.orElseThrow().getName());
+        assertEquals(1L, byEmail.orElseThrow().getId());
+        verify(userRepository, times(1)).findDtoById(1L);
+        verify(userRepository, never()).findDtoByEmail(anyString());
+    }
+
+    @Test
+    @DisplayName("Should cache negative lookups")
+    void testGetUserNotFoundCached() {
+        when(userRepository.findDtoById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(userService.getUserById(2L).isEmpty());
+        assertTrue(userService.getUserById(2L).isEmpty());
+
+        verify(userRepository, times(1)).findDtoById(2L);
+    }
+
+    @Test
+    @DisplayName("Should look up many users in request order with cache and one query")
+    void testGetUsersByIds() {
+        userCache.put(new UserDTO(2L, "Jane Smith", "jane@example.com", 25));
+        when(userRepository.findDtosByIdIn(List.of(1L, 3L))).thenReturn(List.of(UserDTO.from(testUser)));
+
+        List<UserDTO> result = userService.getUsersByIds(List.of(1L, 2L, 3L, 1L));
+
+        assertEquals(List.of(1L, 2L), result.stream().map(UserDTO::getId).toList());
+        verify(userRepository, times(1)).findDtosByIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid IDs in batch lookup")
+    void testGetUsersByIdsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(null));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(List.of(1L, -1L)));
+    }
+
     @Test
     @DisplayName("Should get all users successfully")
     void testGetAllUsers() {
-        List<UserEntity> users = Arrays.asList(testUser);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAllDtos()).thenReturn(List.of(UserDTO.from(testUser)));
 
-        List<UserEntity> result = userService.getAllUsers();
+        List<UserDTO> result = userService.getAllUsers();
 
         assertNotNull(result);
         assertEquals(1, result.size());
     }
 
+    @Test
+    @DisplayName("Should get keyset page of users")
+    void testGetUsersAfter() {
+        when(userRepository.findDtoPageAfter(0L, 10)).thenReturn(List.of(UserDTO.from(testUser)));
+
+        List<UserDTO> result = userService.getUsersAfter(null, 10);
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    @DisplayName("Should reject page limit out of range")
+    void testGetUsersAfterInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersAfter(0L, 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersAfter(0L, 1001));
+    }
+
     // ============= UPDATE TESTS =============
 
     @Test
     @DisplayName("Should update user successfully")
     void testUpdateUser() {
         UserEntity userToUpdate = new UserEntity(1L, "John Updated", "john@example.com", 31);
-        when(userRepository.existsById(1L)).thenReturn(true);
-        when(userRepository.save(any())).thenReturn(userToUpdate);
+        when(userRepository.updateUser(1L, null, "John Updated", "john@example.com", 31))
+                .thenReturn(Optional.of(new UpdatedUser("john@example.com", 1L)));
 
         UserEntity updated = userService.updateUser(userToUpdate);
 
         assertEquals("John Updated", updated.getName());
+        assertEquals(1L, updated.getVersion());
+        verify(userRepository, never()).existsById(any());
+        verify(userRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(UserChangedEvent.updated(UserDTO.from(updated)));
+    }
+
+    @Test
+    @DisplayName("Should throw exception when updating non-existent user")
+    void testUpdateUserNotFound() {
+        UserEntity userToUpdate = new UserEntity(9L, "Nobody", "nobody@example.com", 31);
+        when(userRepository.updateUser(9L, null, "Nobody", "nobody@example.com", 31)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> userService.updateUser(userToUpdate));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should invalidate cached user and old email on update")
+    void testUpdateUserInvalidatesCache() {
+        UserEntity userToUpdate = new UserEntity(1L, "John Doe", "johnny@example.com", 30);
+        when(userRepository.findDtoById(1L)).thenReturn(Optional.of(UserDTO.from(testUser)));
+        when(userRepository.updateUser(1L, null, "John Doe", "johnny@example.com", 30))
+                .thenReturn(Optional.of(new UpdatedUser("john@example.com", 1L)));
+        when(userRepository.findDtoByEmail("john@example.com")).thenReturn(Optional.empty());
+        userService.getUserById(1L);
+
+        userService.updateUser(userToUpdate);
+
+        assertTrue(userService.getUserByEmail("john@example.com").isEmpty());
+        verify(userRepository, times(1)).findDtoByEmail("john@example.com");
+    }
+
+    @Test
+    @DisplayName("Should free the old email of an uncached user as reported by the update")
+    void testUpdateUncachedUserFreesOldEmail() {
+        emailIndex.markReady();
+        emailIndex.add("john@example.com");
+        when(userRepository.updateUser(1L, null, "John Doe", "johnny@example.com", 30))
+                .thenReturn(Optional.of(new UpdatedUser("john@example.com", 1L)));
+
+        userService.updateUser(new UserEntity(1L, "John Doe", "johnny@example.com", 30));
+
+        assertFalse(emailIndex.mightContain("john@example.com"));
+        assertTrue(emailIndex.mightContain("johnny@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should free the email of an uncached user as reported by the delete")
+    void testDeleteUncachedUserFreesEmail() {
+        emailIndex.markReady();
+        emailIndex.add("john@example.com");
+        when(userRepository.deleteUser(1L, null)).thenReturn(Optional.of("john@example.com"));
+
+        userService.deleteUser(1L);
+
+        assertFalse(emailIndex.mightContain("john@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should answer version lookup from cache without a query")
+    void testGetUserVersionCached() {
+        userCache.put(new UserDTO(1L, "John Doe", "john@example.com", 30, 4L));
+
+        assertEquals(Optional.of(4L), userService.getUserVersion(1L));
+        verify(userRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    @DisplayName("Should report not found when conditional delete matches nothing and user is gone")
+    void testDeleteUserStaleButMissing() {
+        when(userRepository.deleteUser(9L, 2L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(9L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUser(9L, 2L));
+    }
+
+    @Test
+    @DisplayName("Should report version mismatch when conditional delete matches nothing but user exists")
+    void testDeleteUserVersionMismatch() {
+        when(userRepository.deleteUser(1L, 2L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(VersionMismatchException.class, () -> userService.deleteUser(1L, 2L));
+    }
+
+    // ============= PATCH TESTS =============
+
+    @Test
+    @DisplayName("Should patch only the given fields without reading the user")
+    void testPatchUser() {
+        when(userRepository.patchUser(1L, null, null, null, 31)).thenReturn(Optional.of(new UpdatedUser("john@example.com", 5L)));
+
+        UserDTO patched = userService.patchUser(1L, new UserPatch(null, null, 31), null);
+
+        assertEquals(new UserDTO(1L, null, null, 31, 5L), patched);
+        verify(userRepository, never()).findById(any());
+        verify(userRepository, never()).findDtoById(any());
+        // only the patched field, the other fields of the user are not known
+        verify(eventPublisher).publishEvent(UserChangedEvent.patched(1L, null, Map.of("age", 31, "version", 5L)));
+    }
+
+    @Test
+    @DisplayName("Should merge the patch into the cached user and apply it to the statistics")
+    void testPatchCachedUser() {
+        userStats.reconcile(Map.of(30, 1L), userStats.writeCount());
+        userCache.put(new UserDTO(1L, "John Doe", "john@example.com", 30, 3L));
+        when(userRepository.patchUser(1L, 3L, null, "johnny@example.com", 41)).thenReturn(Optional.of(new UpdatedUser("john@example.com", 4L)));
+
+        UserDTO patched = userService.patchUser(1L, new UserPatch(null, "johnny@example.com", 41), 3L);
+
+        assertEquals(new UserDTO(1L, "John Doe", "johnny@example.com", 41, 4L), patched);
+        verify(eventPublisher).publishEvent(UserChangedEvent.patched(1L, patched,
+                Map.of("email", "johnny@example.com", "age", 41, "version", 4L)));
+        assertTrue(userCache.peek(1L).isEmpty());
+        assertFalse(userStats.isStale());
+        assertEquals(1L, userService.getStatistics().ageHistogram().get("40-49"));
+    }
+
+    @Test
+    @DisplayName("Should leave statistics alone when the age is not patched")
+    void testPatchWithoutAgeKeepsStatistics() {
+        userStats.reconcile(Map.of(30, 1L), userStats.writeCount());
+        when(userRepository.patchUser(1L, null, "Johnny", null, null))
+                .thenReturn(Optional.of(new UpdatedUser("john@example.com", 1L)));
+
+        userService.patchUser(1L, new UserPatch("Johnny", null, null), null);
+
+        assertFalse(userStats.isStale());
+    }
+
+    @Test
+    @DisplayName("Should validate only the patched fields")
+    void testPatchValidation() {
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(1L, new UserPatch(null, null, null), null));
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(1L, new UserPatch(" ", null, null), null));
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(1L, new UserPatch(null, "", null), null));
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(0L, new UserPatch("Johnny", null, null), null));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Should report a taken email when the patch violates the unique constraint")
+    void testPatchDuplicateEmail() {
+        when(userRepository.patchUser(1L, null, null, "jane@example.com", null))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.patchUser(1L, new UserPatch(null, "jane@example.com", null), null));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should report version mismatch when conditional patch matches nothing but user exists")
+    void testPatchVersionMismatch() {
+        when(userRepository.patchUser(1L, 2L, "Johnny", null, null)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(VersionMismatchException.class,
+                () -> userService.patchUser(1L, new UserPatch("Johnny", null, null), 2L));
     }
 
     // ============= DELETE TESTS =============
@@ -100,12 +419,62 @@ class UserServiceImplTest {
     @Test
     @DisplayName("Should delete user successfully")
     void testDeleteUser() {
-        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.deleteUser(1L, null)).thenReturn(Optional.of("john@example.com"));
 
         userService.deleteUser(1L);
 
-        verify(userRepository, times(1)).deleteById(1L);  // ✅ ПРАВИЛЬНО!
+        verify(userRepository, times(1)).deleteUser(1L, null);
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Should throw exception when deleting non-existent user")
+    void testDeleteUserNotFound() {
+        when(userRepository.deleteUser(9L, null)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUser(9L));
+    }
+
+    // ============= STATISTICS TESTS =============
+
+    @Test
+    @DisplayName("Should refuse statistics until they are loaded")
+    void testStatisticsNotLoaded() {
+        assertThrows(UserStatsUnavailableException.class, () -> userService.getStatistics());
+    }
+
+    @Test
+    @DisplayName("Should apply writes to statistics without querying the database")
+    void testStatisticsFollowWrites() {
+        userStats.reconcile(Map.of(30, 1L), userStats.writeCount());
+        when(userRepository.saveAndFlush(any(UserEntity.class)))
+                .thenReturn(new UserEntity(2L, "Ann Lee", "ann@example.com", 41));
+        when(userRepository.deleteUser(1L, null)).thenReturn(Optional.of("john@example.com"));
+        userCache.put(UserDTO.from(testUser));
+
+        userService.createUser(new UserEntity("Ann Lee", "ann@example.com", 41));
+        userService.deleteUser(1L);
+        UserStatistics statistics = userService.getStatistics();
+
+        assertEquals(1, statistics.total());
+        assertEquals(41, statistics.minAge());
+        assertEquals(1L, statistics.ageHistogram().get("40-49"));
+        assertEquals(0L, statistics.ageHistogram().get("30-39"));
+        assertFalse(userStats.isStale());
+        verify(userRepository, never()).countUsersByAge();
+    }
+
+    @Test
+    @DisplayName("Should mark statistics stale when the previous age of an updated user is unknown")
+    void testStatisticsStaleOnUncachedUpdate() {
+        userStats.reconcile(Map.of(30, 1L), userStats.writeCount());
+        when(userRepository.updateUser(1L, null, "John Doe", "john@example.com", 31))
+                .thenReturn(Optional.of(new UpdatedUser("john@example.com", 1L)));
+
+        userService.updateUser(new UserEntity(1L, "John Doe", "john@example.com", 31));
 
+        assertTrue(userStats.isStale());
+        assertEquals(1, userService.getStatistics().total());
     }
 
     // ============= EXISTS TESTS =============
@@ -0,0 +1,130 @@
+package com.example.service;
+
+import com.example.dto.UserDTO;
+import com.example.entity.UserEntity;
+import com.example.repository.UserRepository;
+import com.example.repository.UserShards;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies how many SQL statements each write path issues,
+ * using Hibernate statistics against H2.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserServiceImpl.class, UserCache.class, EmailIndex.class, UserLookupCoalescer.class, RecentWrites.class,
+        UserStats.class, UserShards.class})
+@ActiveProfiles("test")
+@DisplayName("UserServiceImpl SQL Statement Count Tests")
+class UserServiceStatementCountTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.saveAndFlush(new UserEntity("John Doe", "john@example.com", 30)).getId();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Update should issue a single UPDATE that returns the new version")
+    void testUpdateIssuesOneStatement() {
+        UserEntity updated = userService.updateUser(new UserEntity(userId, "John Updated", "john@example.com", 31));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1L, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("Update of missing user should issue a single UPDATE and fail")
+    void testUpdateMissingIssuesOneStatement() {
+        UserEntity missing = new UserEntity(userId + 1000, "Nobody", "nobody@example.com", 31);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.updateUser(missing));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Delete should issue a single DELETE")
+    void testDeleteIssuesOneStatement() {
+        userService.deleteUser(userId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(userRepository.existsById(userId));
+    }
+
+    @Test
+    @DisplayName("Delete of missing user should issue a single DELETE and fail")
+    void testDeleteMissingIssuesOneStatement() {
+        assertThrows(IllegalArgumentException.class, () -> userService.deleteUser(userId + 1000));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Conditional update at the current version should issue a single UPDATE")
+    void testConditionalUpdateIssuesOneStatement() {
+        UserEntity user = new UserEntity(userId, "John Updated", "john@example.com", 31);
+        user.setVersion(0L);
+
+        UserEntity updated = userService.updateUser(user);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1L, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("Conditional update at a stale version should fail with a version mismatch")
+    void testConditionalUpdateStaleVersion() {
+        UserEntity user = new UserEntity(userId, "John Updated", "john@example.com", 31);
+        user.setVersion(7L);
+
+        assertThrows(VersionMismatchException.class, () -> userService.updateUser(user));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Patch should issue a single UPDATE of the given columns")
+    void testPatchIssuesOneStatement() {
+        UserDTO patchedUser = userService.patchUser(userId, new UserPatch(null, null, 31), null);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1L, patchedUser.getVersion());
+        entityManager.clear();
+        UserEntity patched = userRepository.findById(userId).orElseThrow();
+        assertEquals("John Doe", patched.getName());
+        assertEquals(31, patched.getAge());
+        assertEquals(1L, patched.getVersion());
+    }
+
+    @Test
+    @DisplayName("Patch of missing user should issue a single UPDATE and fail")
+    void testPatchMissingIssuesOneStatement() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.patchUser(userId + 1000, new UserPatch("Nobody", null, null), null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
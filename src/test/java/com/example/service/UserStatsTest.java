@@ -0,0 +1,98 @@
+package com.example.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UserStats Unit Tests")
+class UserStatsTest {
+
+    private UserStats stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = new UserStats();
+        stats.reconcile(Map.of(20, 2L, 35, 1L), stats.writeCount());
+    }
+
+    @Test
+    @DisplayName("Should compute count, range, mean and histogram from the loaded counts")
+    void testSnapshot() {
+        UserStatistics statistics = stats.snapshot();
+
+        assertEquals(3, statistics.total());
+        assertEquals(20, statistics.minAge());
+        assertEquals(35, statistics.maxAge());
+        assertEquals(25.0, statistics.meanAge(), 1e-9);
+        assertEquals(2L, statistics.ageHistogram().get("20-29"));
+        assertEquals(1L, statistics.ageHistogram().get("30-39"));
+        assertEquals(0L, statistics.ageHistogram().get("0-9"));
+        assertEquals(List.of("0-9", "10-19", "20-29", "30-39", "40-49", "50-59", "60-69", "70-79", "80-89",
+                "90-99", "100+"), List.copyOf(statistics.ageHistogram().keySet()));
+        assertNotNull(statistics.reconciledAt());
+        assertFalse(stats.isStale());
+    }
+
+    @Test
+    @DisplayName("Should apply creates, updates and deletes incrementally")
+    void testIncrementalWrites() {
+        stats.recordCreated(70);
+        stats.recordUpdated(20, 18);
+        stats.recordDeleted(35);
+
+        UserStatistics statistics = stats.snapshot();
+
+        assertEquals(3, statistics.total());
+        assertEquals(18, statistics.minAge());
+        assertEquals(70, statistics.maxAge());
+        assertEquals(36.0, statistics.meanAge(), 1e-9);
+        assertEquals(1L, statistics.ageHistogram().get("10-19"));
+        assertFalse(stats.isStale());
+    }
+
+    @Test
+    @DisplayName("Should count ages outside the tracked range exactly")
+    void testUntrackedAges() {
+        stats.recordCreated(-1);
+        stats.recordCreated(UserStats.MAX_TRACKED_AGE + 50);
+
+        UserStatistics statistics = stats.snapshot();
+
+        assertEquals(-1, statistics.minAge());
+        assertEquals(UserStats.MAX_TRACKED_AGE + 50, statistics.maxAge());
+        assertEquals(1L, statistics.ageHistogram().get("<0"));
+        assertEquals(1L, statistics.ageHistogram().get("100+"));
+        assertEquals("<0", statistics.ageHistogram().keySet().iterator().next());
+    }
+
+    @Test
+    @DisplayName("Should count unattributed deletes in the total until reconciled")
+    void testDeleteWithUnknownAge() {
+        stats.recordDeletedUnknownAge();
+
+        assertEquals(2, stats.snapshot().total());
+        assertTrue(stats.isStale());
+
+        stats.reconcile(Map.of(20, 1L, 35, 1L), stats.writeCount());
+
+        assertEquals(2, stats.snapshot().total());
+        assertEquals(35, stats.snapshot().maxAge());
+        assertFalse(stats.isStale());
+    }
+
+    @Test
+    @DisplayName("Should stay stale when writes raced with the database count")
+    void testReconcileRace() {
+        long before = stats.writeCount();
+        stats.recordCreated(40);
+
+        stats.reconcile(Map.of(20, 2L), before);
+
+        assertTrue(stats.isStale());
+    }
+}